@@ -0,0 +1,96 @@
+package com.karfield.graphql.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.karfield.graphql.servlet.components.DefaultExecutionInputCustomizer;
+import com.karfield.graphql.servlet.components.DefaultExecutionResultHandler;
+import com.karfield.graphql.servlet.components.DefaultGraphQLInvocation;
+import com.karfield.graphql.servlet.components.GraphQLController;
+import com.karfield.graphql.servlet.components.InMemoryPersistedQueryStore;
+import com.karfield.graphql.servlet.components.JacksonJsonSerializer;
+import com.karfield.graphql.support.DefaultDataLoaderRegistryFactory;
+import com.karfield.graphql.support.GraphQLSchemaRegistry;
+import graphql.GraphQL;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.ReflectionTestUtils.invokeMethod;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * A whole POST request through {@link GraphQLController#graphqlPOST}: body deserialization, x-header context,
+ * execution on the default invocation and JSON of the result, with the components wired by hand
+ * as the auto-configuration would with the default properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+
+    @Param({"1", "100"})
+    int items;
+
+    private ObjectMapper objectMapper;
+    private GraphQLController controller;
+    private HttpHeaders headers;
+    private WebRequest webRequest;
+    private byte[] body;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper();
+        JacksonJsonSerializer jsonSerializer = new JacksonJsonSerializer(objectMapper);
+        DefaultDataLoaderRegistryFactory dataLoaderRegistryFactory = new DefaultDataLoaderRegistryFactory(Collections.emptyList());
+
+        GraphQL graphQL = SyntheticSchema.buildGraphQL();
+        DefaultGraphQLInvocation invocation = new DefaultGraphQLInvocation();
+        setField(invocation, "schemaRegistry", new GraphQLSchemaRegistry(version -> graphQL, event -> {
+        }));
+        setField(invocation, "dataLoaderRegistryFactory", dataLoaderRegistryFactory);
+        setField(invocation, "executionInputCustomizer", new DefaultExecutionInputCustomizer());
+
+        DefaultExecutionResultHandler resultHandler = new DefaultExecutionResultHandler();
+        setField(resultHandler, "objectMapper", objectMapper);
+        setField(resultHandler, "jsonSerializer", jsonSerializer);
+
+        InMemoryPersistedQueryStore persistedQueryStore = new InMemoryPersistedQueryStore();
+        setField(persistedQueryStore, "size", 1000L);
+        setField(persistedQueryStore, "allowlistLocation", "");
+        invokeMethod(persistedQueryStore, "init");
+
+        controller = new GraphQLController();
+        setField(controller, "graphQLInvocation", invocation);
+        setField(controller, "executionResultHandler", resultHandler);
+        setField(controller, "jsonSerializer", jsonSerializer);
+        setField(controller, "persistedQueryStore", persistedQueryStore);
+        setField(controller, "dataLoaderRegistryFactory", dataLoaderRegistryFactory);
+        setField(controller, "maxRequestSize", -1L);
+        setField(controller, "maxBatchSize", 10);
+        setField(controller, "passXHeader", "x-");
+
+        headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        headers.add("X-Request-Id", "4b6f8c1e-0d1a-4c2b-9e57-3f0c2d1b6a7e");
+        webRequest = new ServletWebRequest(new MockHttpServletRequest("POST", "/graphql"));
+        body = objectMapper.writeValueAsBytes(Collections.singletonMap("query", SyntheticSchema.itemsQuery(items)));
+    }
+
+    @Benchmark
+    public void post() throws Exception {
+        Object result = controller.graphqlPOST(headers, null, null, null, null, new ByteArrayInputStream(body), webRequest);
+        objectMapper.writeValue(ByteStreams.nullOutputStream(), ((CompletableFuture<?>) result).join());
+    }
+}
@@ -0,0 +1,56 @@
+package com.karfield.graphql.benchmarks;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The execution of a wide list query (items × 20 fields) and of a deeply nested one by graphql-java,
+ * on resolvers wired by the starter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionBenchmark {
+
+    @Param({"10000"})
+    int items;
+
+    @Param({"50"})
+    int depth;
+
+    private GraphQL graphQL;
+    private String wideQuery;
+    private String deepQuery;
+
+    @Setup
+    public void setup() throws Exception {
+        graphQL = SyntheticSchema.buildGraphQL();
+        wideQuery = SyntheticSchema.itemsQuery(items);
+        deepQuery = SyntheticSchema.nodeQuery(depth);
+        check(graphQL.execute(wideQuery));
+        check(graphQL.execute(deepQuery));
+    }
+
+    @Benchmark
+    public ExecutionResult wide() {
+        return graphQL.executeAsync(ExecutionInput.newExecutionInput(wideQuery)).join();
+    }
+
+    @Benchmark
+    public ExecutionResult deep() {
+        return graphQL.executeAsync(ExecutionInput.newExecutionInput(deepQuery)).join();
+    }
+
+    static void check(ExecutionResult result) {
+        if (!result.getErrors().isEmpty()) {
+            throw new IllegalStateException(result.getErrors().toString());
+        }
+    }
+}
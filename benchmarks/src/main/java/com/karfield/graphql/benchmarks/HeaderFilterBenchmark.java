@@ -0,0 +1,49 @@
+package com.karfield.graphql.benchmarks;
+
+import com.karfield.graphql.servlet.components.GraphQLRequestSupport;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The context built from the x-headers of a request, among the usual headers of a browser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeaderFilterBenchmark {
+
+    /**
+     * The graphql.pass-x-header prefix, "" passes none.
+     */
+    @Param({"x-", ""})
+    String passXHeader;
+
+    private HttpHeaders headers;
+
+    @Setup
+    public void setup() {
+        headers = new HttpHeaders();
+        headers.add(HttpHeaders.ACCEPT, "application/json");
+        headers.add(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        headers.add(HttpHeaders.ACCEPT_LANGUAGE, "en-US,en;q=0.9");
+        headers.add(HttpHeaders.CONTENT_TYPE, "application/json");
+        headers.add(HttpHeaders.CONTENT_LENGTH, "512");
+        headers.add(HttpHeaders.USER_AGENT, "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36");
+        headers.add(HttpHeaders.COOKIE, "session=0123456789abcdef");
+        headers.add(HttpHeaders.ORIGIN, "https://example.com");
+        headers.add("X-Request-Id", "4b6f8c1e-0d1a-4c2b-9e57-3f0c2d1b6a7e");
+        headers.add("X-User-Id", "42");
+        headers.add("X-Forwarded-For", "10.0.0.1");
+    }
+
+    @Benchmark
+    public Map<String, Object> buildContext() {
+        return GraphQLRequestSupport.buildContext(headers, passXHeader);
+    }
+}
@@ -0,0 +1,55 @@
+package com.karfield.graphql.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.karfield.graphql.servlet.components.GraphQLRequestBody;
+import com.karfield.graphql.servlet.components.JacksonJsonSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialization of a POST body, straight from the request stream as the controller does, or from a string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBodyBenchmark {
+
+    /**
+     * Number of variables of the request.
+     */
+    @Param({"1", "500"})
+    int variables;
+
+    private JacksonJsonSerializer serializer;
+    private String json;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        serializer = new JacksonJsonSerializer(new ObjectMapper());
+        StringBuilder body = new StringBuilder("{\"query\":\"")
+                .append(SyntheticSchema.itemsQuery(10))
+                .append("\",\"operationName\":null,\"variables\":{");
+        for (int i = 0; i < variables; i++) {
+            body.append(i > 0 ? "," : "").append("\"v").append(i).append("\":{\"id\":").append(i).append(",\"name\":\"name-").append(i).append("\"}");
+        }
+        json = body.append("}}").toString();
+        bytes = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public GraphQLRequestBody fromStream() {
+        return serializer.deserialize(new ByteArrayInputStream(bytes), GraphQLRequestBody.class);
+    }
+
+    @Benchmark
+    public GraphQLRequestBody fromString() {
+        return serializer.deserialize(new String(bytes, StandardCharsets.UTF_8), GraphQLRequestBody.class);
+    }
+}
@@ -0,0 +1,63 @@
+package com.karfield.graphql.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import com.karfield.graphql.support.MethodInvoker;
+import com.karfield.graphql.support.ResolverDataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingEnvironmentImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The call of a resolver method: direct, by {@link Method#invoke}, by the {@link MethodInvoker} of the wiring,
+ * and through the whole {@link ResolverDataFetcher} which binds the arguments from the environment first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResolverInvocationBenchmark {
+
+    private SyntheticSchema.Resolvers resolvers;
+    private Method method;
+    private MethodInvoker invoker;
+    private ResolverDataFetcher dataFetcher;
+    private DataFetchingEnvironment environment;
+    private String name;
+
+    @Setup
+    public void setup() throws Exception {
+        resolvers = new SyntheticSchema.Resolvers();
+        method = SyntheticSchema.Resolvers.class.getMethod("hello", String.class);
+        invoker = new MethodInvoker(resolvers, method);
+        dataFetcher = SyntheticSchema.fetcher(resolvers, "hello", String.class, "name");
+        name = "world";
+        environment = DataFetchingEnvironmentImpl.newDataFetchingEnvironment()
+                .arguments(ImmutableMap.of("name", name))
+                .build();
+    }
+
+    @Benchmark
+    public Object direct() {
+        return resolvers.hello(name);
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        return method.invoke(resolvers, name);
+    }
+
+    @Benchmark
+    public Object methodInvoker() throws Exception {
+        return invoker.invoke(new Object[]{name});
+    }
+
+    @Benchmark
+    public Object dataFetcher() throws Exception {
+        return dataFetcher.get(environment);
+    }
+}
@@ -0,0 +1,49 @@
+package com.karfield.graphql.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.karfield.graphql.servlet.components.ExecutionResultHttpMessageConverter;
+import graphql.ExecutionResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON of a result: the specification map written by the ObjectMapper, as with the
+ * DefaultExecutionResultHandler, or the result streamed as with graphql.streaming-response=true.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "10000"})
+    int items;
+
+    private ObjectMapper objectMapper;
+    private ExecutionResult result;
+
+    @Setup
+    public void setup() throws Exception {
+        objectMapper = new ObjectMapper();
+        result = SyntheticSchema.buildGraphQL().execute(SyntheticSchema.itemsQuery(items));
+        ExecutionBenchmark.check(result);
+    }
+
+    @Benchmark
+    public void specification() throws IOException {
+        objectMapper.writeValue(ByteStreams.nullOutputStream(), result.toSpecification());
+    }
+
+    @Benchmark
+    public void streaming() throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(ByteStreams.nullOutputStream())) {
+            ExecutionResultHttpMessageConverter.write(generator, result);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.karfield.graphql.benchmarks;
+
+import com.google.common.collect.Lists;
+import com.karfield.graphql.support.ResolverDataFetcher;
+import com.karfield.graphql.support.ResolverParameter;
+import com.karfield.graphql.support.parameters.ArgumentParameter;
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import lombok.Data;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An in-memory schema wired the way the starter wires a {@link com.karfield.graphql.annotations.GraphQLResolver}:
+ * every root field is a {@link ResolverDataFetcher} on a method of {@link Resolvers}.
+ * <ul>
+ * <li>items(count): a wide list of objects with 20 scalar fields</li>
+ * <li>node(depth): a chain of nested objects</li>
+ * <li>hello(name): a single scalar</li>
+ * </ul>
+ */
+public final class SyntheticSchema {
+
+    public static final int ITEM_FIELDS = 20;
+
+    public static final String SDL = buildSdl();
+
+    private SyntheticSchema() {
+    }
+
+    private static String buildSdl() {
+        StringBuilder sdl = new StringBuilder()
+                .append("type Query {\n")
+                .append("  items(count: Int!): [Item]\n")
+                .append("  node(depth: Int!): Node\n")
+                .append("  hello(name: String): String\n")
+                .append("}\n")
+                .append("type Node {\n  id: ID\n  value: Int\n  child: Node\n}\n")
+                .append("type Item {\n");
+        for (int i = 0; i < ITEM_FIELDS; i++) {
+            sdl.append("  f").append(i).append(i % 2 == 0 ? ": String\n" : ": Int\n");
+        }
+        return sdl.append("}\n").toString();
+    }
+
+    /**
+     * The selection of every field of count items.
+     */
+    public static String itemsQuery(int count) {
+        StringBuilder query = new StringBuilder("{ items(count: ").append(count).append(") {");
+        for (int i = 0; i < ITEM_FIELDS; i++) {
+            query.append(" f").append(i);
+        }
+        return query.append(" } }").toString();
+    }
+
+    /**
+     * The selection of a chain of depth nodes.
+     */
+    public static String nodeQuery(int depth) {
+        StringBuilder query = new StringBuilder("{ node(depth: ").append(depth).append(") ");
+        for (int i = 0; i < depth; i++) {
+            query.append("{ id value child ");
+        }
+        query.append("{ id }");
+        for (int i = 0; i < depth; i++) {
+            query.append(" }");
+        }
+        return query.append(" }").toString();
+    }
+
+    public static GraphQLSchema buildSchema() throws Exception {
+        Resolvers resolvers = new Resolvers();
+        RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                .type("Query", type -> {
+                    try {
+                        return type
+                                .dataFetcher("items", fetcher(resolvers, "items", int.class, "count"))
+                                .dataFetcher("node", fetcher(resolvers, "node", int.class, "depth"))
+                                .dataFetcher("hello", fetcher(resolvers, "hello", String.class, "name"));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .build();
+        return new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(SDL), wiring);
+    }
+
+    public static GraphQL buildGraphQL() throws Exception {
+        return GraphQL.newGraphQL(buildSchema()).build();
+    }
+
+    /**
+     * The data fetcher of a resolver method taking a single @GraphQLArgument.
+     */
+    public static ResolverDataFetcher fetcher(Object resolver, String methodName, Class<?> argumentType, String argumentName) throws Exception {
+        Method method = resolver.getClass().getMethod(methodName, argumentType);
+        ArgumentParameter parameter = new ArgumentParameter();
+        parameter.setParameter(method.getParameters()[0]);
+        parameter.setName(argumentName);
+        List<ResolverParameter> parameters = Collections.singletonList(parameter);
+        return new ResolverDataFetcher(resolver, method, parameters);
+    }
+
+    public static class Resolvers {
+
+        public List<Item> items(int count) {
+            List<Item> items = Lists.newArrayListWithCapacity(count);
+            for (int i = 0; i < count; i++) {
+                items.add(new Item(i));
+            }
+            return items;
+        }
+
+        public Node node(int depth) {
+            Node root = null;
+            for (int i = depth; i >= 0; i--) {
+                root = new Node(String.valueOf(i), i, root);
+            }
+            return root;
+        }
+
+        public String hello(String name) {
+            return "hello " + name;
+        }
+    }
+
+    @Data
+    public static class Node {
+        private final String id;
+        private final int value;
+        private final Node child;
+    }
+
+    @Data
+    public static class Item {
+        private String f0, f2, f4, f6, f8, f10, f12, f14, f16, f18;
+        private int f1, f3, f5, f7, f9, f11, f13, f15, f17, f19;
+
+        public Item(int i) {
+            String s = "item-" + i;
+            f0 = f2 = f4 = f6 = f8 = f10 = f12 = f14 = f16 = f18 = s;
+            f1 = f3 = f5 = f7 = f9 = f11 = f13 = f15 = f17 = f19 = i;
+        }
+    }
+}
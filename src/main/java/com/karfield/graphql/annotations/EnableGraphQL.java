@@ -9,4 +9,10 @@ public @interface EnableGraphQL {
     String schema() default "schema.graphqls";
     String[] modules() default {};
     String xHeaderPrefix() default ""; // do not pass X-* headers
+    long documentCacheSize() default 1000; // parsed & validated documents, 0 to disable, see graphql.document-cache.size
+    long documentCacheWeight() default 0; // bound by total query length instead of entries if > 0, see graphql.document-cache.weight
+    int maxQueryDepth() default 0; // unlimited if 0, see graphql.max-query-depth
+    int maxQueryComplexity() default 0; // unlimited if 0, see graphql.max-query-complexity
+    boolean metrics() default false; // micrometer meters, see graphql.metrics.enabled
+    double fieldMetricsSampleRate() default 1.0; // share of field fetches timed, see graphql.metrics.field-sample-rate
 }
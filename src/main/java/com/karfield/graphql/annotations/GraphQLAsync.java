@@ -0,0 +1,22 @@
+package com.karfield.graphql.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Runs a {@link GraphQLQuery} or {@link GraphQLMutation} method of a {@link GraphQLResolver} on an executor,
+ * so a blocking call does not hold a graphql-java execution thread and sibling fields resolve in parallel.
+ * <p>
+ * Methods returning a {@link java.util.concurrent.CompletionStage} (or a single valued
+ * {@link org.reactivestreams.Publisher}, e.g. a Mono) are already asynchronous and do not need this annotation.
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface GraphQLAsync {
+    /**
+     * The name of an {@link java.util.concurrent.Executor} bean, the bounded executor of the starter if empty
+     * (see graphql.async.* properties).
+     */
+    String value() default "";
+}
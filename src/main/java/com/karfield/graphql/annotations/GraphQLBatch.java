@@ -0,0 +1,32 @@
+package com.karfield.graphql.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Turns a {@link GraphQLQuery} method of a {@link GraphQLResolver} into a batch loader.
+ * <p>
+ * The method takes the list of keys collected during a request (and optionally a {@link GraphQLContext} parameter),
+ * and returns either a list of values in the same order as the keys, or a map from keys to values
+ * (possibly wrapped in a {@link java.util.concurrent.CompletionStage}).
+ * The field is fetched by loading the key from a per-request {@link org.dataloader.DataLoader} named "Type.field".
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface GraphQLBatch {
+    /**
+     * The property of the source object used as the key, the source object itself if empty.
+     */
+    String key() default "";
+
+    /**
+     * The maximum number of keys passed in one call, unlimited if not positive.
+     */
+    int maxBatchSize() default 0;
+
+    /**
+     * Whether values are cached by key for the duration of a request.
+     */
+    boolean cache() default true;
+}
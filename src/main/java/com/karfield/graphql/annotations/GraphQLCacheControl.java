@@ -0,0 +1,35 @@
+package com.karfield.graphql.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * A cache hint of a field, on a {@link GraphQLQuery} data fetcher or resolver method.
+ * <p>
+ * With graphql.http-cache.enabled, a GET response may be cached for the smallest max age of the fields it resolved,
+ * and is private if any of them is. Root fields without a hint are not cacheable, other fields inherit the hint of
+ * their parent. Mutations and responses with errors are never cacheable.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface GraphQLCacheControl {
+    /**
+     * In seconds.
+     */
+    int maxAge();
+
+    Scope scope() default Scope.PUBLIC;
+
+    enum Scope {
+        /**
+         * The same for every client, or depending only on the headers listed in graphql.http-cache.headers, may be
+         * cached by shared caches.
+         */
+        PUBLIC,
+        /**
+         * Depends on the client, may only be cached by the client.
+         */
+        PRIVATE
+    }
+}
@@ -0,0 +1,51 @@
+package com.karfield.graphql.annotations;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the values returned by a {@link GraphQLQuery} method of a {@link GraphQLResolver}, in the
+ * {@link com.karfield.graphql.servlet.FieldResultCache} of the application.
+ * <p>
+ * A value is cached by its field, the values of its {@link GraphQLArgument}s (or the {@link #keyArgs()} only),
+ * its parent (the {@link GraphQLSource} parameter, the {@link #sourceKey()} property of the source, or else
+ * the source itself for the fields of non-root types, compared with its {@code equals}),
+ * and with {@link Scope#PER_CONTEXT} its {@link GraphQLContext} parameters. Concurrent misses of the same key
+ * share a single call of the method. Null values and failures are not cached.
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface GraphQLCacheable {
+    /**
+     * How long a value is cached.
+     */
+    long ttl() default 60;
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * The names of the arguments which make up the key, every {@link GraphQLArgument} if empty.
+     */
+    String[] keyArgs() default {};
+
+    /**
+     * A property (or map key) of the source identifying the parent, instead of the {@link GraphQLSource} parameter.
+     */
+    String sourceKey() default "";
+
+    Scope scope() default Scope.PUBLIC;
+
+    enum Scope {
+        /**
+         * Values are shared by every request.
+         */
+        PUBLIC,
+        /**
+         * Values are shared by the requests with the same {@link GraphQLContext} parameters,
+         * or the same context if the method has none.
+         */
+        PER_CONTEXT
+    }
+}
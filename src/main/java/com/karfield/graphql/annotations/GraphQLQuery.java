@@ -12,4 +12,14 @@ import java.lang.annotation.*;
 public @interface GraphQLQuery {
     String field();
     String type() default "";
+
+    /**
+     * The cost of resolving this field, checked against the maximum query complexity.
+     */
+    int cost() default 1;
+
+    /**
+     * The name of an argument (e.g. "first") whose value multiplies the cost of the selections of this field.
+     */
+    String costMultiplier() default "";
 }
@@ -0,0 +1,20 @@
+package com.karfield.graphql.annotations;
+
+import java.lang.annotation.*;
+
+@Target({ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface GraphQLSelectedFields {
+    /**
+     * Injects the leaf fields selected under the field into a {@code Set<String>} parameter, by their qualified name
+     * ie "name" or "address/city" for a field of a child object, in the order of the query.
+     * Only the columns asked for can then be read, e.g. in the SELECT clause of a query.
+     *
+     * With mappings like "address/city=city_name" only the mapped fields are injected, as their column names,
+     * so fields resolved elsewhere never reach the query. Several fields may map to the same column.
+     *
+     */
+    String[] columns() default {};
+}
@@ -0,0 +1,19 @@
+package com.karfield.graphql.annotations;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.annotation.*;
+
+/**
+ * A field of the subscription type, its data fetcher or resolver method returns a {@link org.reactivestreams.Publisher}
+ * (or a CompletionStage of one) of the values sent to the subscriber.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Component
+@Inherited
+public @interface GraphQLSubscription {
+    String field();
+    String type() default "";
+}
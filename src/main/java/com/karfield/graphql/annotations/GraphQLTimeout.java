@@ -0,0 +1,23 @@
+package com.karfield.graphql.annotations;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the time a field may take to resolve, on a {@link GraphQLQuery} or {@link GraphQLMutation} data fetcher
+ * or resolver method. A field still pending then resolves to null with a TIMEOUT error, and the subscription of
+ * a publisher it returned (e.g. a Mono) is cancelled. The request deadline (see graphql.timeout.* properties) applies too, whichever comes first.
+ * <p>
+ * Only asynchronous fields are bounded: a method blocking the execution thread can not be interrupted,
+ * combine it with {@link GraphQLAsync}. Resolvers get the deadline with a
+ * {@link com.karfield.graphql.support.GraphQLDeadline} parameter, to bound their own downstream calls.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface GraphQLTimeout {
+    long value();
+
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
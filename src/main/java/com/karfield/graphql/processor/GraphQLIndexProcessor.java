@@ -0,0 +1,273 @@
+package com.karfield.graphql.processor;
+
+import com.karfield.graphql.annotations.*;
+import graphql.parser.InvalidSyntaxException;
+import graphql.parser.Parser;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes at compile time what {@link com.karfield.graphql.support.GraphQLAutoConfiguration} otherwise finds by
+ * scanning every bean and every method at startup:
+ * <ul>
+ * <li>{@value #INDEX_LOCATION}: the classes bearing a wiring annotation ("com.example.Foo=resolver"),
+ * and the field methods of resolvers with the kind of each parameter ("com.example.Foo#user(java.lang.String)=argument")</li>
+ * </ul>
+ * It also checks the schema files of {@link EnableGraphQL} for syntax errors, which otherwise fail the startup. They
+ * are still read at startup: a merged copy could not tell whether the files on the classpath changed since.
+ * The processor is discovered by javac from the starter jar, unless the build sets its own processor path
+ * (e.g. maven-compiler-plugin annotationProcessorPaths) in which case the starter has to be added to it.
+ * <p>
+ * Classes from an earlier incremental compilation are kept in the index, as long as they still exist.
+ */
+@SupportedAnnotationTypes("*")
+public class GraphQLIndexProcessor extends AbstractProcessor {
+
+    public static final String INDEX_LOCATION = "META-INF/graphql/wiring.index";
+    public static final String SCALAR = "scalar";
+    public static final String QUERY = "query";
+    public static final String MUTATION = "mutation";
+    public static final String SUBSCRIPTION = "subscription";
+    public static final String INTERFACE = "interface";
+    public static final String UNION = "union";
+    public static final String RESOLVER = "resolver";
+
+    public static final String ARGUMENT = "argument";
+    public static final String SOURCE = "source";
+    public static final String PATH = "path";
+    public static final String CONTEXT = "context";
+    public static final String REQUIRE_ANY_OF_FIELDS = "requireAnyOfFields";
+    public static final String REQUIRE_ALL_OF_FIELDS = "requireAllOfFields";
+    public static final String SELECTED_FIELDS = "selectedFields";
+    public static final String ENVIRONMENT = "env";
+    public static final String DEADLINE = "deadline";
+    public static final String OTHER = "other";
+
+    private static final Map<String, String> TYPE_KINDS = new LinkedHashMap<>();
+    private static final Map<String, String> PARAMETER_KINDS = new LinkedHashMap<>();
+
+    static {
+        TYPE_KINDS.put(GraphQLScalar.class.getName(), SCALAR);
+        TYPE_KINDS.put(GraphQLQuery.class.getName(), QUERY);
+        TYPE_KINDS.put(GraphQLMutation.class.getName(), MUTATION);
+        TYPE_KINDS.put(GraphQLSubscription.class.getName(), SUBSCRIPTION);
+        TYPE_KINDS.put(GraphQLInterface.class.getName(), INTERFACE);
+        TYPE_KINDS.put(GraphQLUnion.class.getName(), UNION);
+        TYPE_KINDS.put(GraphQLResolver.class.getName(), RESOLVER);
+
+        PARAMETER_KINDS.put(GraphQLArgument.class.getName(), ARGUMENT);
+        PARAMETER_KINDS.put(GraphQLSource.class.getName(), SOURCE);
+        PARAMETER_KINDS.put(GraphQLPath.class.getName(), PATH);
+        PARAMETER_KINDS.put(GraphQLContext.class.getName(), CONTEXT);
+        PARAMETER_KINDS.put(GraphQLRequireAnyOfFields.class.getName(), REQUIRE_ANY_OF_FIELDS);
+        PARAMETER_KINDS.put(GraphQLRequireAllOfFields.class.getName(), REQUIRE_ALL_OF_FIELDS);
+        PARAMETER_KINDS.put(GraphQLSelectedFields.class.getName(), SELECTED_FIELDS);
+    }
+
+    private final Map<String, String> index = new TreeMap<>();
+    private final Set<String> processedTypes = new HashSet<>();
+    private final Set<String> schemaFiles = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            if (element instanceof TypeElement) {
+                processType((TypeElement) element);
+            }
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            checkSchema();
+        }
+        // other processors still see every annotation
+        return false;
+    }
+
+    private void processType(TypeElement type) {
+        String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+        processedTypes.add(className);
+
+        EnableGraphQL config = type.getAnnotation(EnableGraphQL.class);
+        if (config != null && schemaFiles.isEmpty()) {
+            schemaFiles.add(config.schema());
+            schemaFiles.add("common.graphql");
+            schemaFiles.addAll(Arrays.asList(config.modules()));
+        }
+
+        if (!type.getModifiers().contains(Modifier.ABSTRACT) && type.getKind() == ElementKind.CLASS) {
+            Set<String> kinds = new LinkedHashSet<>();
+            for (AnnotationMirror annotation : processingEnv.getElementUtils().getAllAnnotationMirrors(type)) {
+                collectKinds(annotation, TYPE_KINDS, kinds, new HashSet<>());
+            }
+            if (!kinds.isEmpty()) {
+                index.put(className, String.join(",", kinds));
+            }
+            if (kinds.contains(RESOLVER)) {
+                for (Element member : type.getEnclosedElements()) {
+                    if (member.getKind() == ElementKind.METHOD && member.getModifiers().contains(Modifier.PUBLIC)) {
+                        processMethod(className, (ExecutableElement) member);
+                    }
+                }
+            }
+        }
+
+        for (Element member : type.getEnclosedElements()) {
+            if (member instanceof TypeElement) {
+                processType((TypeElement) member);
+            }
+        }
+    }
+
+    private void processMethod(String className, ExecutableElement method) {
+        Set<String> fieldKinds = new HashSet<>();
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            collectKinds(annotation, TYPE_KINDS, fieldKinds, new HashSet<>());
+        }
+        fieldKinds.retainAll(Arrays.asList(QUERY, MUTATION, SUBSCRIPTION));
+        if (fieldKinds.isEmpty()) {
+            return;
+        }
+
+        List<String> parameterTypes = new ArrayList<>();
+        List<String> parameterKinds = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            parameterTypes.add(typeName(parameter.asType()));
+            Set<String> kinds = new LinkedHashSet<>();
+            for (AnnotationMirror annotation : parameter.getAnnotationMirrors()) {
+                collectKinds(annotation, PARAMETER_KINDS, kinds, new HashSet<>());
+            }
+            // in the order the auto-configuration looks for them
+            Optional<String> kind = PARAMETER_KINDS.values().stream().filter(kinds::contains).findFirst();
+            if (kind.isPresent()) {
+                parameterKinds.add(kind.get());
+            } else if (typeName(parameter.asType()).equals("graphql.schema.DataFetchingEnvironment")) {
+                parameterKinds.add(ENVIRONMENT);
+            } else if (typeName(parameter.asType()).equals("com.karfield.graphql.support.GraphQLDeadline")) {
+                parameterKinds.add(DEADLINE);
+            } else {
+                parameterKinds.add(OTHER);
+            }
+        }
+        String key = className + "#" + method.getSimpleName() + "(" + String.join(",", parameterTypes) + ")";
+        index.put(key, String.join(",", parameterKinds));
+    }
+
+    /**
+     * Kinds of an annotation and of the annotations it is meta-annotated with, as Spring finds them.
+     */
+    private void collectKinds(AnnotationMirror annotation, Map<String, String> kindsByAnnotation, Set<String> kinds, Set<String> visited) {
+        TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+        String name = annotationType.getQualifiedName().toString();
+        if (name.startsWith("java.lang.annotation.") || !visited.add(name)) {
+            return;
+        }
+        String kind = kindsByAnnotation.get(name);
+        if (kind != null) {
+            kinds.add(kind);
+        }
+        for (AnnotationMirror meta : annotationType.getAnnotationMirrors()) {
+            collectKinds(meta, kindsByAnnotation, kinds, visited);
+        }
+    }
+
+    /**
+     * The erased type name, as loaded by Spring's ClassUtils.forName.
+     */
+    private String typeName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        if (erased instanceof DeclaredType) {
+            return processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) erased).asElement()).toString();
+        }
+        if (erased.getKind() == TypeKind.ARRAY) {
+            return typeName(((ArrayType) erased).getComponentType()) + "[]";
+        }
+        return erased.toString();
+    }
+
+    private void writeIndex() {
+        Properties previous = new Properties();
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (InputStream in = existing.openInputStream()) {
+                previous.load(in);
+            }
+        } catch (IOException e) {
+            // first compilation
+        }
+        for (String key : previous.stringPropertyNames()) {
+            String className = key.contains("#") ? key.substring(0, key.indexOf('#')) : key;
+            if (!processedTypes.contains(className)) {
+                index.put(key, previous.getProperty(key));
+            }
+        }
+        if (index.isEmpty()) {
+            return;
+        }
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> entry : index.entrySet()) {
+                    writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "cannot write " + INDEX_LOCATION + ": " + e.getMessage());
+        }
+    }
+
+    private void checkSchema() {
+        if (schemaFiles.isEmpty()) {
+            return;
+        }
+        StringBuilder sdl = new StringBuilder();
+        List<String> merged = new ArrayList<>();
+        for (String name : schemaFiles) {
+            String content = readResource(name);
+            if (content == null) {
+                if (merged.isEmpty()) {
+                    // resources are not in the class output (e.g. a Gradle build), the files are only checked at startup
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "graphql schema " + name + " not found, not checked");
+                    return;
+                }
+                continue;
+            }
+            merged.add(name);
+            sdl.append(content).append('\n');
+        }
+
+        try {
+            new Parser().parseDocument(sdl.toString());
+        } catch (InvalidSyntaxException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "invalid graphql schema " + merged + ": " + e.getMessage());
+        }
+    }
+
+    private String readResource(String name) {
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", name);
+            return file.getCharContent(true).toString();
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.karfield.graphql.reactive;
+
+import graphql.ExecutionInput;
+import graphql.PublicApi;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lets you customize the #ExecutionInput before the query is executed, like
+ * {@link com.karfield.graphql.servlet.ExecutionInputCustomizer} does for the servlet stack.
+ * <p>
+ * This is only used if you use the default {@link ReactiveGraphQLInvocation}.
+ */
+@PublicApi
+public interface ReactiveExecutionInputCustomizer {
+
+    CompletableFuture<ExecutionInput> customizeExecutionInput(ExecutionInput executionInput, ServerWebExchange exchange);
+
+}
@@ -0,0 +1,20 @@
+package com.karfield.graphql.reactive;
+
+import com.karfield.graphql.servlet.GraphQLInvocationData;
+import graphql.ExecutionResult;
+import graphql.PublicApi;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The WebFlux counterpart of {@link com.karfield.graphql.servlet.GraphQLInvocation}.
+ * <p>
+ * It is called on the event loop which read the request, so it must not block.
+ */
+@PublicApi
+public interface ReactiveGraphQLInvocation {
+
+    CompletableFuture<ExecutionResult> invoke(GraphQLInvocationData invocationData, ServerWebExchange exchange, Object context);
+
+}
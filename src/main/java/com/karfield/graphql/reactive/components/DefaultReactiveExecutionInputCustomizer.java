@@ -0,0 +1,21 @@
+package com.karfield.graphql.reactive.components;
+
+import com.karfield.graphql.reactive.ReactiveExecutionInputCustomizer;
+import graphql.ExecutionInput;
+import graphql.Internal;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Internal
+public class DefaultReactiveExecutionInputCustomizer implements ReactiveExecutionInputCustomizer {
+
+    @Override
+    public CompletableFuture<ExecutionInput> customizeExecutionInput(ExecutionInput executionInput, ServerWebExchange exchange) {
+        return CompletableFuture.completedFuture(executionInput);
+    }
+}
@@ -0,0 +1,82 @@
+package com.karfield.graphql.reactive.components;
+
+import com.karfield.graphql.reactive.ReactiveExecutionInputCustomizer;
+import com.karfield.graphql.reactive.ReactiveGraphQLInvocation;
+import com.karfield.graphql.servlet.DataLoaderRegistryFactory;
+import com.karfield.graphql.servlet.GraphQLInvocationData;
+import com.karfield.graphql.support.GraphQLDeadline;
+import com.karfield.graphql.support.GraphQLSchemaRegistry;
+import com.karfield.graphql.support.GraphQLTimeouts;
+import com.karfield.graphql.support.RequestCoalescer;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.Internal;
+import org.dataloader.DataLoaderRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Internal
+public class DefaultReactiveGraphQLInvocation implements ReactiveGraphQLInvocation {
+
+    @Autowired
+    GraphQLSchemaRegistry schemaRegistry;
+
+    @Autowired
+    DataLoaderRegistryFactory dataLoaderRegistryFactory;
+
+    @Autowired
+    ReactiveExecutionInputCustomizer executionInputCustomizer;
+
+    /**
+     * Set with graphql.coalescing.enabled=true, shares the result of identical queries in flight.
+     */
+    @Autowired(required = false)
+    RequestCoalescer requestCoalescer;
+
+    /**
+     * Set if a timeout is configured, see graphql.timeout.* properties.
+     */
+    @Autowired(required = false)
+    GraphQLTimeouts timeouts;
+
+    @Override
+    public CompletableFuture<ExecutionResult> invoke(GraphQLInvocationData invocationData, ServerWebExchange exchange, Object context) {
+        ExecutionInput.Builder executionInputBuilder = ExecutionInput.newExecutionInput()
+                .query(invocationData.getQuery())
+                .operationName(invocationData.getOperationName())
+                .variables(invocationData.getVariables())
+                .context(context);
+        DataLoaderRegistry registry = invocationData.getDataLoaderRegistry();
+        if (registry == null) {
+            registry = dataLoaderRegistryFactory.create(context);
+        }
+        if (!registry.getKeys().isEmpty()) {
+            executionInputBuilder.dataLoaderRegistry(registry);
+        }
+        ExecutionInput executionInput = executionInputBuilder.build();
+        CompletableFuture<ExecutionInput> customizedExecutionInput = executionInputCustomizer.customizeExecutionInput(executionInput, exchange);
+        String timeoutHeader = timeouts == null || timeouts.getHeader().isEmpty() ? null : exchange.getRequest().getHeaders().getFirst(timeouts.getHeader());
+        // operations of a batch share their data loaders, they are never coalesced
+        if (requestCoalescer != null && invocationData.getDataLoaderRegistry() == null) {
+            // keyed by the customized input, which holds whatever the customizer derived from the request
+            return customizedExecutionInput.thenCompose(input -> requestCoalescer.execute(schemaRegistry.getVersion(), input,
+                    timeoutHeader, () -> execute(CompletableFuture.completedFuture(input), timeoutHeader)));
+        }
+        return execute(customizedExecutionInput, timeoutHeader);
+    }
+
+    private CompletableFuture<ExecutionResult> execute(CompletableFuture<ExecutionInput> executionInput, String timeoutHeader) {
+        if (timeouts == null) {
+            return executionInput.thenCompose(input -> schemaRegistry.getGraphQL().executeAsync(input));
+        }
+        GraphQLDeadline deadline = timeouts.getRequestDeadline(timeoutHeader);
+        return timeouts.execute(deadline, executionInput, input -> schemaRegistry.getGraphQL().executeAsync(input));
+    }
+
+}
@@ -0,0 +1,246 @@
+package com.karfield.graphql.reactive.components;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.karfield.graphql.reactive.ReactiveGraphQLInvocation;
+import com.karfield.graphql.servlet.DataLoaderRegistryFactory;
+import com.karfield.graphql.servlet.GraphQLInvocationData;
+import com.karfield.graphql.servlet.IncrementalDelivery;
+import com.karfield.graphql.servlet.JsonSerializer;
+import com.karfield.graphql.servlet.PersistedQueryStore;
+import com.karfield.graphql.servlet.components.GraphQLRequestBody;
+import com.karfield.graphql.servlet.components.GraphQLRequestError;
+import com.karfield.graphql.servlet.components.GraphQLRequestSupport;
+import com.karfield.graphql.support.GraphQLRequestLimiter;
+import com.karfield.graphql.support.OverloadedException;
+import graphql.ExecutionResult;
+import graphql.Internal;
+import org.dataloader.DataLoaderRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * The WebFlux variant of {@link com.karfield.graphql.servlet.components.GraphQLController},
+ * routed by {@link GraphQLRouter}.
+ * <p>
+ * The body is read without blocking and the operations start on the event loop which read it,
+ * the response is written once their futures complete. Resolvers which block should be
+ * {@link com.karfield.graphql.annotations.GraphQLAsync} or return a CompletionStage.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Internal
+public class GraphQLHandler {
+
+    private static final MediaType APPLICATION_GRAPHQL = new MediaType("application", "graphql");
+
+    @Autowired
+    ReactiveGraphQLInvocation graphQLInvocation;
+
+    @Autowired
+    JsonSerializer jsonSerializer;
+
+    @Autowired
+    PersistedQueryStore persistedQueryStore;
+
+    @Autowired
+    DataLoaderRegistryFactory dataLoaderRegistryFactory;
+
+    @Autowired(required = false)
+    GraphQLRequestLimiter requestLimiter;
+
+    @Autowired
+    private String passXHeader;
+
+    @Value("${graphql.max-request-size:-1}")
+    long maxRequestSize;
+
+    @Value("${graphql.max-batch-size:10}")
+    int maxBatchSize;
+
+    public Mono<ServerResponse> handle(ServerRequest request) {
+        HttpHeaders httpHeaders = request.headers().asHttpHeaders();
+        String query = request.queryParam("query").orElse(null);
+        String operationName = request.queryParam("operationName").orElse(null);
+        String variablesJson = request.queryParam("variables").orElse(null);
+        String extensionsJson = request.queryParam("extensions").orElse(null);
+
+        if (request.method() == HttpMethod.GET) {
+            if (query == null && extensionsJson == null) {
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Required String parameter 'query' is not present"));
+            }
+            return respond(executeRequest(query, operationName, convertVariablesJson(variablesJson),
+                    convertVariablesJson(extensionsJson), request, httpHeaders));
+        }
+
+        // the same forms of POST requests as the servlet controller, see there
+
+        MediaType contentType = httpHeaders.getContentType();
+        if (contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return readBody(request).flatMap(buffer -> {
+                try (InputStream stream = buffer.asInputStream(true)) {
+                    PushbackInputStream in = new PushbackInputStream(stream, 1);
+                    if (GraphQLRequestSupport.peekJsonToken(in) == '[') {
+                        GraphQLRequestBody[] requests = jsonSerializer.deserialize(in, GraphQLRequestBody[].class);
+                        return respond(executeBatch(requests, request, httpHeaders));
+                    }
+                    GraphQLRequestBody body = jsonSerializer.deserialize(in, GraphQLRequestBody.class);
+                    if (body.getQuery() == null) {
+                        body.setQuery("");
+                    }
+                    return respond(executeRequest(body.getQuery(), body.getOperationName(), body.getVariables(),
+                            body.getExtensions(), request, httpHeaders));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        if (query != null || extensionsJson != null) {
+            return respond(executeRequest(query, operationName, convertVariablesJson(variablesJson),
+                    convertVariablesJson(extensionsJson), request, httpHeaders));
+        }
+
+        if (contentType != null && APPLICATION_GRAPHQL.isCompatibleWith(contentType)) {
+            Charset charset = contentType.getCharset() != null ? contentType.getCharset() : Charsets.UTF_8;
+            return readBody(request).flatMap(buffer -> {
+                String document = charset.decode(buffer.asByteBuffer()).toString();
+                DataBufferUtils.release(buffer);
+                return respond(executeRequest(document, null, null, null, request, httpHeaders));
+            });
+        }
+
+        return Mono.error(new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Could not process GraphQL request"));
+    }
+
+    /**
+     * The whole body in one buffer, oversized requests are rejected upfront by their Content-Length,
+     * or as soon as the limit is crossed while reading.
+     */
+    private Mono<DataBuffer> readBody(ServerRequest request) {
+        Flux<DataBuffer> body = request.body(BodyExtractors.toDataBuffers());
+        if (maxRequestSize >= 0) {
+            if (request.headers().contentLength().orElse(-1) > maxRequestSize) {
+                return Mono.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "GraphQL request exceeds " + maxRequestSize + " bytes"));
+            }
+            Flux<DataBuffer> unbounded = body;
+            body = Flux.defer(() -> {
+                long[] read = new long[1];
+                return unbounded.map(buffer -> {
+                    read[0] += buffer.readableByteCount();
+                    if (read[0] > maxRequestSize) {
+                        DataBufferUtils.release(buffer);
+                        throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "GraphQL request exceeds " + maxRequestSize + " bytes");
+                    }
+                    return buffer;
+                });
+            });
+        }
+        return DataBufferUtils.join(body)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty GraphQL request")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> convertVariablesJson(String jsonMap) {
+        if (jsonMap == null) {
+            return Collections.emptyMap();
+        }
+        return jsonSerializer.deserialize(jsonMap, Map.class);
+    }
+
+    private static Mono<ServerResponse> respond(CompletableFuture<?> result) {
+        return Mono.fromFuture(result).flatMap(specification -> ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .syncBody(specification))
+                // an operation rejected under load, clients should retry later
+                .onErrorResume(OverloadedException.class, e -> ServerResponse.status(e.getStatus())
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .syncBody(GraphQLRequestSupport.overloaded(e)));
+    }
+
+    private CompletableFuture<Map<String, Object>> executeRequest(
+            String query,
+            String operationName,
+            Map<String, Object> variables,
+            Map<String, Object> extensions,
+            ServerRequest request,
+            HttpHeaders httpHeaders
+            ) {
+        return invokeRequest(query, operationName, variables, extensions, request,
+                GraphQLRequestSupport.buildContext(httpHeaders, passXHeader), null)
+                .thenCompose(IncrementalDelivery::awaitDeferred)
+                .thenApply(ExecutionResult::toSpecification);
+    }
+
+    private CompletableFuture<List<Map<String, Object>>> executeBatch(GraphQLRequestBody[] requests, ServerRequest request, HttpHeaders httpHeaders) {
+        if (requests.length == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty GraphQL batch");
+        }
+        if (maxBatchSize >= 0 && requests.length > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "GraphQL batch exceeds " + maxBatchSize + " operations");
+        }
+
+        // every operation sees the same context and data loaders, so loads are batched across operations
+
+        Object context = GraphQLRequestSupport.buildContext(httpHeaders, passXHeader);
+        DataLoaderRegistry registry = dataLoaderRegistryFactory.create(context);
+        List<CompletableFuture<ExecutionResult>> results = Lists.newArrayListWithCapacity(requests.length);
+        for (GraphQLRequestBody body : requests) {
+            try {
+                // operations are admitted one by one, a rejected one is answered on its own
+                results.add(GraphQLRequestSupport.overloadedAsError(invokeRequest(body.getQuery(), body.getOperationName(),
+                        body.getVariables(), body.getExtensions(), request, context, registry))
+                        .thenCompose(IncrementalDelivery::awaitDeferred));
+            } catch (ResponseStatusException e) {
+                results.add(GraphQLRequestSupport.errorResult(new GraphQLRequestError(e.getReason(), GraphQLRequestError.BAD_REQUEST)));
+            }
+        }
+        return CompletableFuture
+                .allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> results.stream()
+                        .map(result -> result.join().toSpecification())
+                        .collect(Collectors.toList()));
+    }
+
+    private CompletableFuture<ExecutionResult> invokeRequest(
+            String query,
+            String operationName,
+            Map<String, Object> variables,
+            Map<String, Object> extensions,
+            ServerRequest request,
+            Object context,
+            DataLoaderRegistry dataLoaderRegistry
+            ) {
+        return GraphQLRequestSupport.invokePersisted(persistedQueryStore, query, extensions, q -> {
+            GraphQLInvocationData invocationData = new GraphQLInvocationData(q, operationName, variables, dataLoaderRegistry);
+            return GraphQLRequestSupport.admit(requestLimiter, operationName, context,
+                    () -> graphQLInvocation.invoke(invocationData, request.exchange(), context));
+        });
+    }
+}
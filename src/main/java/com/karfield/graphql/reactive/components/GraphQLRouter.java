@@ -0,0 +1,32 @@
+package com.karfield.graphql.reactive.components;
+
+import graphql.Internal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Routes GET and POST requests of the GraphQL endpoint to the {@link GraphQLHandler} in reactive web applications.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Internal
+public class GraphQLRouter {
+
+    @Value("${graphql.endpoint:graphql}")
+    String endpoint;
+
+    @Bean
+    public RouterFunction<ServerResponse> graphQLRouterFunction(GraphQLHandler graphQLHandler) {
+        String path = endpoint.startsWith("/") ? endpoint : "/" + endpoint;
+        return route(GET(path), graphQLHandler::handle)
+                .andRoute(POST(path), graphQLHandler::handle);
+    }
+}
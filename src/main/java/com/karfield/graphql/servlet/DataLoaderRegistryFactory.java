@@ -0,0 +1,18 @@
+package com.karfield.graphql.servlet;
+
+import graphql.PublicSpi;
+import org.dataloader.DataLoaderRegistry;
+
+/**
+ * Creates the {@link DataLoaderRegistry} of a request, data loaders cache their values
+ * so they must never be shared between requests.
+ */
+@PublicSpi
+public interface DataLoaderRegistryFactory {
+
+    /**
+     * @param context the context object of the request, handed to the batch loaders
+     * @return a new registry
+     */
+    DataLoaderRegistry create(Object context);
+}
@@ -3,10 +3,31 @@ package com.karfield.graphql.servlet;
 import graphql.ExecutionResult;
 import graphql.PublicSpi;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @PublicSpi
 public interface ExecutionResultHandler {
 
     Object handleExecutionResult(CompletableFuture<ExecutionResult> executionResultCF);
+
+    /**
+     * Handles the result of a client which accepts both multipart/mixed and JSON responses, its @defer fields may
+     * still be pending. Unless overridden they are awaited and merged into the result. A result sent as JSON should
+     * set its content type, e.g. with {@link IncrementalDelivery#json}, since the client may prefer multipart/mixed.
+     * Clients which only accept multipart/mixed are always sent {@link IncrementalDelivery#multipart}.
+     */
+    default Object handleIncrementalExecutionResult(CompletableFuture<ExecutionResult> executionResultCF) {
+        return handleExecutionResult(executionResultCF.thenCompose(IncrementalDelivery::awaitDeferred));
+    }
+
+    /**
+     * Handles the results of a batch of operations, in the order the operations were sent.
+     */
+    default Object handleExecutionResults(CompletableFuture<List<ExecutionResult>> executionResultsCF) {
+        return executionResultsCF.thenApply(results -> results.stream()
+                .map(ExecutionResult::toSpecification)
+                .collect(Collectors.toList()));
+    }
 }
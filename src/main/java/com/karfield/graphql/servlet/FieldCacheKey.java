@@ -0,0 +1,54 @@
+package com.karfield.graphql.servlet;
+
+import graphql.PublicApi;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The key of a value in the {@link FieldResultCache}: the coordinates of a field ("Type.field")
+ * and the values it was resolved with.
+ */
+@PublicApi
+public final class FieldCacheKey {
+
+    private final String field;
+    private final List<Object> values;
+    private final int hashCode;
+
+    public FieldCacheKey(String field, List<Object> values) {
+        this.field = field;
+        this.values = values;
+        this.hashCode = Objects.hash(field, values);
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FieldCacheKey)) {
+            return false;
+        }
+        FieldCacheKey other = (FieldCacheKey) o;
+        return hashCode == other.hashCode && field.equals(other.field) && values.equals(other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return field + values;
+    }
+}
@@ -0,0 +1,25 @@
+package com.karfield.graphql.servlet;
+
+import graphql.PublicSpi;
+
+/**
+ * Stores the values of {@link com.karfield.graphql.annotations.GraphQLCacheable} resolver methods.
+ * <p>
+ * Concurrent misses are already coalesced by the caller, an implementation only stores and expires values.
+ */
+@PublicSpi
+public interface FieldResultCache {
+
+    /**
+     * @param key the field and the values it was resolved with
+     * @return the cached value, or null if it is absent or expired
+     */
+    Object get(FieldCacheKey key);
+
+    /**
+     * @param key       the field and the values it was resolved with
+     * @param value     a non null value
+     * @param ttlMillis how long the value may be used
+     */
+    void put(FieldCacheKey key, Object value, long ttlMillis);
+}
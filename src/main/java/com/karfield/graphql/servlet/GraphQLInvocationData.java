@@ -2,6 +2,7 @@ package com.karfield.graphql.servlet;
 
 import graphql.Assert;
 import graphql.PublicApi;
+import org.dataloader.DataLoaderRegistry;
 
 import java.util.Collections;
 import java.util.Map;
@@ -12,11 +13,21 @@ public class GraphQLInvocationData {
     private final String query;
     private final String operationName;
     private final Map<String, Object> variables;
+    private final DataLoaderRegistry dataLoaderRegistry;
 
     public GraphQLInvocationData(String query, String operationName, Map<String, Object> variables) {
+        this(query, operationName, variables, null);
+    }
+
+    /**
+     * @param dataLoaderRegistry the data loaders shared with other operations of the same request,
+     *                           or null to create new ones for this operation
+     */
+    public GraphQLInvocationData(String query, String operationName, Map<String, Object> variables, DataLoaderRegistry dataLoaderRegistry) {
         this.query = Assert.assertNotNull(query, "query must be provided");
         this.operationName = operationName;
         this.variables = variables != null ? variables : Collections.emptyMap();
+        this.dataLoaderRegistry = dataLoaderRegistry;
     }
 
     public String getQuery() {
@@ -30,4 +41,8 @@ public class GraphQLInvocationData {
     public Map<String, Object> getVariables() {
         return variables;
     }
+
+    public DataLoaderRegistry getDataLoaderRegistry() {
+        return dataLoaderRegistry;
+    }
 }
@@ -0,0 +1,252 @@
+package com.karfield.graphql.servlet;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import graphql.DeferredExecutionResult;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQL;
+import graphql.GraphQLError;
+import graphql.PublicApi;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delivers the fields marked with @defer after the rest of a result.
+ * <p>
+ * graphql-java completes the result without them and publishes each of them once resolved. They are either sent
+ * as the parts of a multipart/mixed response, following the incremental delivery format of the GraphQL over HTTP
+ * drafts, or awaited and merged back into the result for clients which do not accept it. Custom
+ * {@link ExecutionResultHandler}s use the same methods.
+ */
+@PublicApi
+public final class IncrementalDelivery {
+
+    public static final MediaType MULTIPART_MIXED = new MediaType("multipart", "mixed");
+
+    private static final String BOUNDARY = "-";
+    private static final byte[] PART = ("\r\n--" + BOUNDARY + "\r\nContent-Type: application/json; charset=utf-8\r\n\r\n").getBytes(Charsets.UTF_8);
+    private static final byte[] END = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(Charsets.UTF_8);
+
+    private IncrementalDelivery() {
+    }
+
+    public static boolean acceptsMultipart(List<MediaType> accept) {
+        for (MediaType mediaType : accept) {
+            if (mediaType.getType().equals(MULTIPART_MIXED.getType()) && mediaType.getSubtype().equals(MULTIPART_MIXED.getSubtype())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean acceptsJson(List<MediaType> accept) {
+        if (accept.isEmpty()) {
+            return true;
+        }
+        for (MediaType mediaType : accept) {
+            if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A result without deferred parts for a client which accepts multipart/mixed: sent as JSON, which content
+     * negotiation would not pick if the client lists multipart/mixed first.
+     */
+    public static ResponseEntity<Object> json(Object body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+    }
+
+    /**
+     * @return the deferred parts of a result, or null if nothing was deferred
+     */
+    @SuppressWarnings("unchecked")
+    public static Publisher<DeferredExecutionResult> getDeferredResults(ExecutionResult result) {
+        Map<Object, Object> extensions = result.getExtensions();
+        return extensions != null ? (Publisher<DeferredExecutionResult>) extensions.get(GraphQL.DEFERRED_RESULTS) : null;
+    }
+
+    /**
+     * Waits for the deferred parts of a result and merges them into it.
+     */
+    public static CompletableFuture<ExecutionResult> awaitDeferred(ExecutionResult result) {
+        Publisher<DeferredExecutionResult> deferredResults = getDeferredResults(result);
+        if (deferredResults == null) {
+            return CompletableFuture.completedFuture(result);
+        }
+        Object data = result.getData();
+        List<GraphQLError> errors = Lists.newArrayList(result.getErrors());
+        CompletableFuture<ExecutionResult> merged = new CompletableFuture<>();
+        deferredResults.subscribe(new OneByOne() {
+            @Override
+            void next(DeferredExecutionResult deferred) {
+                set(data, deferred.getPath(), deferred.getData());
+                errors.addAll(deferred.getErrors());
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                merged.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                merged.complete(new ExecutionResultImpl(data, errors, withoutDeferred(result.getExtensions())));
+            }
+        });
+        return merged;
+    }
+
+    /**
+     * Streams a result and its deferred parts as they complete, the first part is sent right away. A result without
+     * deferred parts is sent as a single part, for clients which only accept multipart/mixed.
+     */
+    public static ResponseBodyEmitter multipart(ExecutionResult result, JsonSerializer jsonSerializer) {
+        Publisher<DeferredExecutionResult> deferredResults = getDeferredResults(result);
+        MultipartEmitter emitter = new MultipartEmitter();
+
+        Map<String, Object> initial = Maps.newLinkedHashMap(result.toSpecification());
+        Map<Object, Object> extensions = withoutDeferred(result.getExtensions());
+        if (extensions == null) {
+            initial.remove("extensions");
+        } else {
+            initial.put("extensions", extensions);
+        }
+        initial.put("hasNext", deferredResults != null);
+
+        try {
+            emitter.part(jsonSerializer.serialize(initial));
+            if (deferredResults == null) {
+                emitter.send(END);
+                emitter.complete();
+                return emitter;
+            }
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        deferredResults.subscribe(new OneByOne() {
+            @Override
+            void next(DeferredExecutionResult deferred) throws IOException {
+                // the incremental format addresses the parent object of a deferred field
+                List<Object> path = deferred.getPath();
+                Map<String, Object> incremental = Maps.newLinkedHashMap();
+                incremental.put("data", singletonMap(path.get(path.size() - 1), deferred.getData()));
+                incremental.put("path", path.subList(0, path.size() - 1));
+                if (!deferred.getErrors().isEmpty()) {
+                    incremental.put("errors", deferred.toSpecification().get("errors"));
+                }
+                Map<String, Object> part = Maps.newLinkedHashMap();
+                part.put("incremental", Lists.newArrayList(incremental));
+                part.put("hasNext", true);
+                emitter.part(jsonSerializer.serialize(part));
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                emitter.completeWithError(t);
+            }
+
+            @Override
+            public void onComplete() {
+                try {
+                    emitter.part("{\"hasNext\":false}");
+                    emitter.send(END);
+                    emitter.complete();
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+        return emitter;
+    }
+
+    private static Map<Object, Object> withoutDeferred(Map<Object, Object> extensions) {
+        if (extensions == null || !extensions.containsKey(GraphQL.DEFERRED_RESULTS)) {
+            return extensions;
+        }
+        Map<Object, Object> copy = Maps.newLinkedHashMap(extensions);
+        copy.remove(GraphQL.DEFERRED_RESULTS);
+        return copy.isEmpty() ? null : copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void set(Object data, List<Object> path, Object value) {
+        Object parent = data;
+        for (int i = 0; i < path.size() - 1 && parent != null; i++) {
+            Object segment = path.get(i);
+            parent = segment instanceof Integer ? ((List<Object>) parent).get((Integer) segment) : ((Map<Object, Object>) parent).get(segment);
+        }
+        if (parent instanceof Map) {
+            ((Map<Object, Object>) parent).put(path.get(path.size() - 1), value);
+        }
+    }
+
+    private static Map<Object, Object> singletonMap(Object key, Object value) {
+        Map<Object, Object> map = Maps.newLinkedHashMap();
+        map.put(key, value);
+        return map;
+    }
+
+    /**
+     * Requests the deferred parts one at a time, cancelling the rest if one cannot be handled.
+     */
+    private abstract static class OneByOne implements Subscriber<DeferredExecutionResult> {
+        private Subscription subscription;
+
+        abstract void next(DeferredExecutionResult deferred) throws IOException;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            s.request(1);
+        }
+
+        @Override
+        public void onNext(DeferredExecutionResult deferred) {
+            try {
+                next(deferred);
+            } catch (IOException | RuntimeException e) {
+                subscription.cancel();
+                onError(e);
+                return;
+            }
+            subscription.request(1);
+        }
+    }
+
+    private static class MultipartEmitter extends ResponseBodyEmitter {
+
+        void part(String json) throws IOException {
+            send(PART);
+            send(json.getBytes(Charsets.UTF_8));
+        }
+
+        private void send(byte[] bytes) throws IOException {
+            send(bytes, MediaType.APPLICATION_OCTET_STREAM);
+        }
+
+        @Override
+        protected void extendResponse(ServerHttpResponse outputMessage) {
+            super.extendResponse(outputMessage);
+            Map<String, String> parameters = Maps.newLinkedHashMap();
+            parameters.put("boundary", "\"" + BOUNDARY + "\"");
+            parameters.put("deferSpec", "20220824");
+            outputMessage.getHeaders().setContentType(new MediaType(MULTIPART_MIXED, parameters));
+        }
+    }
+}
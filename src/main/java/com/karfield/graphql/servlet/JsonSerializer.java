@@ -1,7 +1,13 @@
 package com.karfield.graphql.servlet;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
 import graphql.PublicSpi;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
 /**
  * An interface for serializing and deserializing GraphQL objects.
  */
@@ -25,4 +31,21 @@ public interface JsonSerializer {
      * @return the object
      */
     <T> T deserialize(String json, Class<T> requiredType);
+
+    /**
+     * Deserializes the given json stream to an object of the required type, without reading it into a {@link String}
+     * first where the implementation supports it.
+     *
+     * @param json         the UTF-8 encoded json stream
+     * @param requiredType the required type
+     * @param <T>          the required generic type
+     * @return the object
+     */
+    default <T> T deserialize(InputStream json, Class<T> requiredType) {
+        try {
+            return deserialize(CharStreams.toString(new InputStreamReader(json, Charsets.UTF_8)), requiredType);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading JSON: " + e.getMessage(), e);
+        }
+    }
 }
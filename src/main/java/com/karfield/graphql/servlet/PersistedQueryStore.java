@@ -0,0 +1,39 @@
+package com.karfield.graphql.servlet;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import graphql.PublicSpi;
+
+/**
+ * Stores query texts addressed by their sha256 hash, for automatic persisted queries.
+ * <p>
+ * Clients send {@code extensions.persistedQuery.sha256Hash} instead of the query text, and only upload the
+ * full text (together with the hash) after the server answered with a {@code PersistedQueryNotFound} error.
+ */
+@PublicSpi
+public interface PersistedQueryStore {
+
+    /**
+     * Looks up a persisted query.
+     *
+     * @param sha256Hash the lower case hex sha256 hash of the query text
+     * @return the query text or null if it is unknown
+     */
+    String get(String sha256Hash);
+
+    /**
+     * Registers a query sent by a client, the hash has already been verified against the query text.
+     *
+     * @param sha256Hash the lower case hex sha256 hash of the query text
+     * @param query      the query text
+     */
+    void put(String sha256Hash, String query);
+
+    /**
+     * @param query the query text
+     * @return the lower case hex sha256 hash of the query text, as computed by APQ clients
+     */
+    static String hash(String query) {
+        return Hashing.sha256().hashString(query, Charsets.UTF_8).toString();
+    }
+}
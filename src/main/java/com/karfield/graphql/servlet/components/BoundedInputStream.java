@@ -0,0 +1,62 @@
+package com.karfield.graphql.servlet.components;
+
+import graphql.Internal;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fails with 413 as soon as more than the allowed number of bytes were read from a request body,
+ * for clients which do not send a Content-Length.
+ */
+@Internal
+class BoundedInputStream extends FilterInputStream {
+
+    private final long maxSize;
+    private long count;
+
+    BoundedInputStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long n) {
+        count += n;
+        if (count > maxSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "GraphQL request exceeds " + maxSize + " bytes");
+        }
+    }
+}
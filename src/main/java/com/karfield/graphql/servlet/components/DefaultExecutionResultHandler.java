@@ -2,22 +2,36 @@ package com.karfield.graphql.servlet.components;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.karfield.graphql.servlet.ExecutionResultHandler;
+import com.karfield.graphql.servlet.IncrementalDelivery;
+import com.karfield.graphql.servlet.JsonSerializer;
 import graphql.ExecutionResult;
 import graphql.Internal;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.CompletableFuture;
 
 @Component
 @Internal
+@ConditionalOnProperty(name = "graphql.streaming-response", havingValue = "false", matchIfMissing = true)
 public class DefaultExecutionResultHandler implements ExecutionResultHandler {
 
     @Autowired
     ObjectMapper objectMapper;
 
+    @Autowired
+    JsonSerializer jsonSerializer;
+
     @Override
     public Object handleExecutionResult(CompletableFuture<ExecutionResult> executionResultCF) {
         return executionResultCF.thenApply(ExecutionResult::toSpecification);
     }
+
+    @Override
+    public Object handleIncrementalExecutionResult(CompletableFuture<ExecutionResult> executionResultCF) {
+        return executionResultCF.thenApply(result -> IncrementalDelivery.getDeferredResults(result) == null
+                ? IncrementalDelivery.json(result.toSpecification())
+                : IncrementalDelivery.multipart(result, jsonSerializer));
+    }
 }
@@ -1,11 +1,15 @@
 package com.karfield.graphql.servlet.components;
 
+import com.karfield.graphql.servlet.DataLoaderRegistryFactory;
 import com.karfield.graphql.servlet.ExecutionInputCustomizer;
 import com.karfield.graphql.servlet.GraphQLInvocation;
 import com.karfield.graphql.servlet.GraphQLInvocationData;
+import com.karfield.graphql.support.GraphQLDeadline;
+import com.karfield.graphql.support.GraphQLSchemaRegistry;
+import com.karfield.graphql.support.GraphQLTimeouts;
+import com.karfield.graphql.support.RequestCoalescer;
 import graphql.ExecutionInput;
 import graphql.ExecutionResult;
-import graphql.GraphQL;
 import graphql.Internal;
 import graphql.execution.ExecutionContextBuilder;
 import org.dataloader.DataLoaderRegistry;
@@ -20,14 +24,33 @@ import java.util.concurrent.CompletableFuture;
 public class DefaultGraphQLInvocation implements GraphQLInvocation {
 
     @Autowired
-    GraphQL graphQL;
+    GraphQLSchemaRegistry schemaRegistry;
 
+    /**
+     * A registry shared by every request, its data loaders should not cache.
+     * Prefer a {@link DataLoaderRegistryFactory} which creates a new registry for each request.
+     */
     @Autowired(required = false)
     DataLoaderRegistry dataLoaderRegistry;
 
+    @Autowired
+    DataLoaderRegistryFactory dataLoaderRegistryFactory;
+
     @Autowired
     ExecutionInputCustomizer executionInputCustomizer;
 
+    /**
+     * Set with graphql.coalescing.enabled=true, shares the result of identical queries in flight.
+     */
+    @Autowired(required = false)
+    RequestCoalescer requestCoalescer;
+
+    /**
+     * Set if a timeout is configured, see graphql.timeout.* properties.
+     */
+    @Autowired(required = false)
+    GraphQLTimeouts timeouts;
+
     @Override
     public CompletableFuture<ExecutionResult> invoke(GraphQLInvocationData invocationData, WebRequest webRequest, Object context) {
         ExecutionInput.Builder executionInputBuilder = ExecutionInput.newExecutionInput()
@@ -35,12 +58,34 @@ public class DefaultGraphQLInvocation implements GraphQLInvocation {
                 .operationName(invocationData.getOperationName())
                 .variables(invocationData.getVariables())
                 .context(context);
+        DataLoaderRegistry registry = invocationData.getDataLoaderRegistry();
+        if (registry == null) {
+            registry = dataLoaderRegistryFactory.create(context);
+        }
         if (dataLoaderRegistry != null) {
-            executionInputBuilder.dataLoaderRegistry(dataLoaderRegistry);
+            registry = registry.combine(dataLoaderRegistry);
+        }
+        if (!registry.getKeys().isEmpty()) {
+            executionInputBuilder.dataLoaderRegistry(registry);
         }
         ExecutionInput executionInput = executionInputBuilder.build();
         CompletableFuture<ExecutionInput> customizedExecutionInput = executionInputCustomizer.customizeExecutionInput(executionInput, webRequest);
-        return customizedExecutionInput.thenCompose(graphQL::executeAsync);
+        String timeoutHeader = timeouts == null || timeouts.getHeader().isEmpty() ? null : webRequest.getHeader(timeouts.getHeader());
+        // operations of a batch share their data loaders, they are never coalesced
+        if (requestCoalescer != null && invocationData.getDataLoaderRegistry() == null) {
+            // keyed by the customized input, which holds whatever the customizer derived from the request
+            return customizedExecutionInput.thenCompose(input -> requestCoalescer.execute(schemaRegistry.getVersion(), input,
+                    timeoutHeader, () -> execute(CompletableFuture.completedFuture(input), timeoutHeader)));
+        }
+        return execute(customizedExecutionInput, timeoutHeader);
+    }
+
+    private CompletableFuture<ExecutionResult> execute(CompletableFuture<ExecutionInput> executionInput, String timeoutHeader) {
+        if (timeouts == null) {
+            return executionInput.thenCompose(input -> schemaRegistry.getGraphQL().executeAsync(input));
+        }
+        GraphQLDeadline deadline = timeouts.getRequestDeadline(timeoutHeader);
+        return timeouts.execute(deadline, executionInput, input -> schemaRegistry.getGraphQL().executeAsync(input));
     }
 
 }
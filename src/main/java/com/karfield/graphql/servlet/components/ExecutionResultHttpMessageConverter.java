@@ -0,0 +1,94 @@
+package com.karfield.graphql.servlet.components;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionResult;
+import graphql.GraphQLError;
+import graphql.Internal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an {@link ExecutionResult} (or an array of them for a batch) straight to the response stream, in the layout of
+ * {@link ExecutionResult#toSpecification()} but without building the specification map first.
+ * The body is sent chunked as the generator's buffer fills up.
+ */
+@Component
+@Internal
+@ConditionalOnProperty(name = "graphql.streaming-response", havingValue = "true")
+public class ExecutionResultHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public ExecutionResultHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ExecutionResult.class.isAssignableFrom(clazz) || ExecutionResult[].class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage)
+            throws HttpMessageNotReadableException {
+        throw new HttpMessageNotReadableException("ExecutionResult can not be read", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object result, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputMessage.getBody(), JsonEncoding.UTF8);
+        if (result instanceof ExecutionResult[]) {
+            generator.writeStartArray();
+            for (ExecutionResult executionResult : (ExecutionResult[]) result) {
+                write(generator, executionResult);
+            }
+            generator.writeEndArray();
+        } else {
+            write(generator, (ExecutionResult) result);
+        }
+        generator.flush();
+    }
+
+    public static void write(JsonGenerator generator, ExecutionResult executionResult) throws IOException {
+        generator.writeStartObject();
+        List<GraphQLError> errors = executionResult.getErrors();
+        if (errors != null && !errors.isEmpty()) {
+            generator.writeArrayFieldStart("errors");
+            for (GraphQLError error : errors) {
+                generator.writeObject(error.toSpecification());
+            }
+            generator.writeEndArray();
+        }
+        if (executionResult.isDataPresent()) {
+            generator.writeFieldName("data");
+            generator.writeObject(executionResult.getData());
+        }
+        Map<Object, Object> extensions = executionResult.getExtensions();
+        if (extensions != null) {
+            generator.writeFieldName("extensions");
+            generator.writeObject(extensions);
+        }
+        generator.writeEndObject();
+    }
+}
@@ -1,31 +1,53 @@
 package com.karfield.graphql.servlet.components;
 
-import com.google.common.base.CaseFormat;
-import com.google.common.collect.Maps;
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import com.google.common.collect.Lists;
+import com.karfield.graphql.servlet.DataLoaderRegistryFactory;
 import com.karfield.graphql.servlet.ExecutionResultHandler;
 import com.karfield.graphql.servlet.GraphQLInvocation;
 import com.karfield.graphql.servlet.GraphQLInvocationData;
+import com.karfield.graphql.servlet.IncrementalDelivery;
 import com.karfield.graphql.servlet.JsonSerializer;
+import com.karfield.graphql.servlet.PersistedQueryStore;
+import com.karfield.graphql.support.GraphQLRequestLimiter;
+import com.karfield.graphql.support.OverloadedException;
 import graphql.ExecutionResult;
 import graphql.Internal;
+import org.dataloader.DataLoaderRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Internal
 public class GraphQLController {
 
+    private static final MediaType APPLICATION_GRAPHQL = new MediaType("application", "graphql");
+
     @Autowired
     GraphQLInvocation graphQLInvocation;
 
@@ -35,23 +57,52 @@ public class GraphQLController {
     @Autowired
     JsonSerializer jsonSerializer;
 
+    @Autowired
+    PersistedQueryStore persistedQueryStore;
+
+    @Autowired
+    DataLoaderRegistryFactory dataLoaderRegistryFactory;
+
+    @Autowired(required = false)
+    @Qualifier("applicationTaskExecutor")
+    Executor taskExecutor;
+
+    @Autowired(required = false)
+    HttpResponseCache httpResponseCache;
+
+    @Autowired(required = false)
+    GraphQLRequestLimiter requestLimiter;
+
+    @Value("${graphql.max-request-size:-1}")
+    long maxRequestSize;
+
+    @Value("${graphql.max-batch-size:10}")
+    int maxBatchSize;
+
     @RequestMapping(value = "${graphql.endpoint:graphql}",
             method = RequestMethod.POST,
-            produces = MediaType.APPLICATION_JSON_VALUE)
+            produces = {MediaType.APPLICATION_JSON_VALUE, "multipart/mixed"})
     public Object graphqlPOST(
             @RequestHeader HttpHeaders httpHeaders,
             @RequestParam(value = "query", required = false) String query,
             @RequestParam(value = "operationName", required = false) String operationName,
             @RequestParam(value = "variables", required = false) String variablesJson,
-            @RequestBody(required = false) String body,
+            @RequestParam(value = "extensions", required = false) String extensionsJson,
+            InputStream body,
             WebRequest webRequest) throws IOException {
 
-        if (body == null) {
-            body = "";
-        }
-
         MediaType contentType = httpHeaders.getContentType();
 
+        // the body is parsed straight from the request stream, oversized requests are rejected
+        // upfront by their Content-Length, or as soon as the limit is crossed while reading
+
+        if (maxRequestSize >= 0) {
+            if (httpHeaders.getContentLength() > maxRequestSize) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "GraphQL request exceeds " + maxRequestSize + " bytes");
+            }
+            body = new BoundedInputStream(body, maxRequestSize);
+        }
+
         // https://graphql.org/learn/serving-over-http/#post-request
         //
         // A standard GraphQL POST request should use the application/json content type,
@@ -63,12 +114,22 @@ public class GraphQLController {
         //   "variables": { "myVariable": "someValue", ... }
         // }
 
-        if (MediaType.APPLICATION_JSON.equals(contentType)) {
-            GraphQLRequestBody request = jsonSerializer.deserialize(body, GraphQLRequestBody.class);
+        //
+        // A JSON array of such objects is a batch, executed at once with shared data loaders,
+        // and answered with an array of results in the same order.
+
+        if (contentType != null && MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            PushbackInputStream in = new PushbackInputStream(body, 1);
+            if (GraphQLRequestSupport.peekJsonToken(in) == '[') {
+                GraphQLRequestBody[] requests = jsonSerializer.deserialize(in, GraphQLRequestBody[].class);
+                return executeBatch(requests, webRequest, httpHeaders);
+            }
+            GraphQLRequestBody request = jsonSerializer.deserialize(in, GraphQLRequestBody.class);
             if (request.getQuery() == null) {
                 request.setQuery("");
             }
-            return executeRequest(request.getQuery(), request.getOperationName(), request.getVariables(), webRequest, httpHeaders);
+            return executeRequest(request.getQuery(), request.getOperationName(), request.getVariables(),
+                    request.getExtensions(), webRequest, httpHeaders);
         }
 
         // In addition to the above, we recommend supporting two additional cases:
@@ -76,15 +137,18 @@ public class GraphQLController {
         // * If the "query" query string parameter is present (as in the GET example above),
         //   it should be parsed and handled in the same way as the HTTP GET case.
 
-        if (query != null) {
-            return executeRequest(query, operationName, convertVariablesJson(variablesJson), webRequest, httpHeaders);
+        if (query != null || extensionsJson != null) {
+            return executeRequest(query, operationName, convertVariablesJson(variablesJson),
+                    convertVariablesJson(extensionsJson), webRequest, httpHeaders);
         }
 
         // * If the "application/graphql" Content-Type header is present,
         //   treat the HTTP POST body contents as the GraphQL query string.
 
-        if ("application/graphql".equals(contentType)) {
-            return executeRequest(body, null, null, webRequest, httpHeaders);
+        if (contentType != null && APPLICATION_GRAPHQL.isCompatibleWith(contentType)) {
+            Charset charset = contentType.getCharset() != null ? contentType.getCharset() : Charsets.UTF_8;
+            String document = CharStreams.toString(new InputStreamReader(body, charset));
+            return executeRequest(document, null, null, null, webRequest, httpHeaders);
         }
 
         throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Could not process GraphQL request");
@@ -92,12 +156,13 @@ public class GraphQLController {
 
     @RequestMapping(value = "${graphql.endpoint:graphql}",
             method = RequestMethod.GET,
-            produces = MediaType.APPLICATION_JSON_VALUE)
+            produces = {MediaType.APPLICATION_JSON_VALUE, "multipart/mixed"})
     public Object graphqlGET(
             @RequestHeader HttpHeaders httpHeaders,
-            @RequestParam("query") String query,
+            @RequestParam(value = "query", required = false) String query,
             @RequestParam(value = "operationName", required = false) String operationName,
             @RequestParam(value = "variables", required = false) String variablesJson,
+            @RequestParam(value = "extensions", required = false) String extensionsJson,
             WebRequest webRequest) {
 
         // https://graphql.org/learn/serving-over-http/#get-request
@@ -118,10 +183,26 @@ public class GraphQLController {
         // Query variables can be sent as a JSON-encoded string in an additional query parameter called "variables".
         // If the query contains several named operations,
         // an "operationName" query parameter can be used to control which one should be executed.
+        //
+        // Automatic persisted queries send "extensions={"persistedQuery":{"version":1,"sha256Hash":"..."}}"
+        // instead of the query text, which keeps the URL short enough to be cached by a CDN.
 
-        return executeRequest(query, operationName, convertVariablesJson(variablesJson), webRequest, httpHeaders);
+        if (query == null && extensionsJson == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Required String parameter 'query' is not present");
+        }
+        if (httpResponseCache != null) {
+            Map<String, Object> variables = convertVariablesJson(variablesJson);
+            Map<String, Object> extensions = convertVariablesJson(extensionsJson);
+            Map<String, Object> context = buildContext(httpHeaders);
+            return httpResponseCache.execute(query, operationName, variables, httpHeaders,
+                    GraphQLRequestSupport.getPersistedQueryHash(extensions),
+                    () -> invokeRequest(query, operationName, variables, extensions, webRequest, context, null));
+        }
+        return executeRequest(query, operationName, convertVariablesJson(variablesJson),
+                convertVariablesJson(extensionsJson), webRequest, httpHeaders);
     }
 
+    @SuppressWarnings("unchecked")
     private Map<String, Object> convertVariablesJson(String jsonMap) {
         if (jsonMap == null) {
             return Collections.emptyMap();
@@ -136,24 +217,91 @@ public class GraphQLController {
             String query,
             String operationName,
             Map<String, Object> variables,
+            Map<String, Object> extensions,
             WebRequest webRequest,
             HttpHeaders httpHeaders
             ) {
-        HashMap<String, Object> xHeaders = Maps.newHashMap();
-        if (!passXHeader.equals("")) {
-            Map<String, String> headers = httpHeaders.toSingleValueMap();
-            headers.forEach((k, v) -> {
-                k = k.toLowerCase();
-                if (k.startsWith(passXHeader)) {
-                    // user defined headers, we pass it as a variables
-//                    k = CaseFormat.LOWER_HYPHEN.to(CaseFormat.LOWER_CAMEL, k);
-                    xHeaders.put(k, v);
+        CompletableFuture<ExecutionResult> executionResult = invokeRequest(
+                query, operationName, variables, extensions, webRequest, buildContext(httpHeaders), null);
+        // fields marked with @defer are sent as later parts of a multipart response if the client accepts one
+        if (IncrementalDelivery.acceptsMultipart(httpHeaders.getAccept())) {
+            if (!IncrementalDelivery.acceptsJson(httpHeaders.getAccept())) {
+                // nothing else can be sent to such a client, even without @defer
+                return executionResult.thenApply(result -> IncrementalDelivery.multipart(result, jsonSerializer));
+            }
+            return executionResultHandler.handleIncrementalExecutionResult(executionResult);
+        }
+        return executionResultHandler.handleExecutionResult(executionResult.thenCompose(IncrementalDelivery::awaitDeferred));
+    }
+
+    private Object executeBatch(GraphQLRequestBody[] requests, WebRequest webRequest, HttpHeaders httpHeaders) {
+        if (requests.length == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Empty GraphQL batch");
+        }
+        if (maxBatchSize >= 0 && requests.length > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "GraphQL batch exceeds " + maxBatchSize + " operations");
+        }
+
+        // every operation sees the same context and data loaders, so loads are batched across operations;
+        // all but the first operation are started on the task executor if there is one
+
+        Object context = buildContext(httpHeaders);
+        DataLoaderRegistry registry = dataLoaderRegistryFactory.create(context);
+        List<CompletableFuture<ExecutionResult>> results = Lists.newArrayListWithCapacity(requests.length);
+        for (int i = 0; i < requests.length; i++) {
+            GraphQLRequestBody request = requests[i];
+            Supplier<CompletableFuture<ExecutionResult>> invocation = () -> {
+                try {
+                    return invokeRequest(request.getQuery(), request.getOperationName(), request.getVariables(),
+                            request.getExtensions(), webRequest, context, registry);
+                } catch (ResponseStatusException e) {
+                    return GraphQLRequestSupport.errorResult(new GraphQLRequestError(e.getReason(), GraphQLRequestError.BAD_REQUEST));
                 }
-            });
+            };
+            if (i == 0 || taskExecutor == null) {
+                results.add(invocation.get());
+            } else {
+                results.add(CompletableFuture.supplyAsync(invocation, taskExecutor).thenCompose(Function.identity()));
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            // operations are admitted one by one, a rejected one is answered on its own
+            results.set(i, GraphQLRequestSupport.overloadedAsError(results.get(i)).thenCompose(IncrementalDelivery::awaitDeferred));
         }
-        GraphQLInvocationData invocationData = new GraphQLInvocationData(query, operationName, variables);
-        CompletableFuture<ExecutionResult> executionResult = graphQLInvocation.invoke(invocationData, webRequest, xHeaders);
-        return executionResultHandler.handleExecutionResult(executionResult);
+        CompletableFuture<List<ExecutionResult>> batch = CompletableFuture
+                .allOf(results.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> results.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+        return executionResultHandler.handleExecutionResults(batch);
     }
 
+    private CompletableFuture<ExecutionResult> invokeRequest(
+            String query,
+            String operationName,
+            Map<String, Object> variables,
+            Map<String, Object> extensions,
+            WebRequest webRequest,
+            Object context,
+            DataLoaderRegistry dataLoaderRegistry
+            ) {
+        return GraphQLRequestSupport.invokePersisted(persistedQueryStore, query, extensions, q -> {
+            GraphQLInvocationData invocationData = new GraphQLInvocationData(q, operationName, variables, dataLoaderRegistry);
+            return GraphQLRequestSupport.admit(requestLimiter, operationName, context,
+                    () -> graphQLInvocation.invoke(invocationData, webRequest, context));
+        });
+    }
+
+    /**
+     * An operation rejected under load, clients should retry later.
+     */
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<Map<String, Object>> overloaded(OverloadedException e) {
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(GraphQLRequestSupport.overloaded(e));
+    }
+
+    private Map<String, Object> buildContext(HttpHeaders httpHeaders) {
+        return GraphQLRequestSupport.buildContext(httpHeaders, passXHeader);
+    }
 }
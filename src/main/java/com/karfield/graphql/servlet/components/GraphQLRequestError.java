@@ -0,0 +1,58 @@
+package com.karfield.graphql.servlet.components;
+
+import com.google.common.collect.ImmutableMap;
+import graphql.ErrorClassification;
+import graphql.ErrorType;
+import graphql.GraphQLError;
+import graphql.Internal;
+import graphql.language.SourceLocation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An error raised by the transport before (or instead of) executing an operation,
+ * reported with an {@code extensions.code} so clients can react to it programmatically.
+ */
+@Internal
+public class GraphQLRequestError implements GraphQLError {
+
+    public static final String PERSISTED_QUERY_NOT_FOUND = "PERSISTED_QUERY_NOT_FOUND";
+    public static final String BAD_REQUEST = "BAD_REQUEST";
+    public static final String OVERLOADED = "OVERLOADED";
+
+    private static final long serialVersionUID = 1L;
+
+    private final String message;
+    private final String code;
+
+    public GraphQLRequestError(String message, String code) {
+        this.message = message;
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public List<SourceLocation> getLocations() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public ErrorClassification getErrorType() {
+        return ErrorType.ExecutionAborted;
+    }
+
+    @Override
+    public Map<String, Object> getExtensions() {
+        return ImmutableMap.of("code", code);
+    }
+}
@@ -0,0 +1,153 @@
+package com.karfield.graphql.servlet.components;
+
+import com.google.common.collect.Maps;
+import com.karfield.graphql.servlet.PersistedQueryStore;
+import com.karfield.graphql.support.GraphQLRequestLimiter;
+import com.karfield.graphql.support.OverloadedException;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.Internal;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The parts of a GraphQL HTTP request which do not depend on the web stack,
+ * shared by the servlet {@link GraphQLController} and the WebFlux handler.
+ */
+@Internal
+public final class GraphQLRequestSupport {
+
+    private GraphQLRequestSupport() {
+    }
+
+    /**
+     * Resolves the query text of an automatic persisted query, registering it on a miss once the client sends it,
+     * then runs the invocation with it.
+     */
+    public static CompletableFuture<ExecutionResult> invokePersisted(
+            PersistedQueryStore persistedQueryStore,
+            String query,
+            Map<String, Object> extensions,
+            Function<String, CompletableFuture<ExecutionResult>> invocation) {
+        String persistedQueryHash = getPersistedQueryHash(extensions);
+        if (persistedQueryHash != null) {
+            if (query == null || query.equals("")) {
+                query = persistedQueryStore.get(persistedQueryHash);
+                if (query == null) {
+                    return errorResult(new GraphQLRequestError("PersistedQueryNotFound",
+                            GraphQLRequestError.PERSISTED_QUERY_NOT_FOUND));
+                }
+            } else if (PersistedQueryStore.hash(query).equals(persistedQueryHash)) {
+                persistedQueryStore.put(persistedQueryHash, query);
+            } else {
+                return errorResult(new GraphQLRequestError("provided sha does not match query",
+                        GraphQLRequestError.BAD_REQUEST));
+            }
+        } else if (query == null) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Could not process GraphQL request");
+        }
+        return invocation.apply(query);
+    }
+
+    /**
+     * The context of an operation: the request headers starting with the configured x-header prefix.
+     */
+    public static Map<String, Object> buildContext(HttpHeaders httpHeaders, String passXHeader) {
+        HashMap<String, Object> xHeaders = Maps.newHashMap();
+        if (!passXHeader.equals("")) {
+            Map<String, String> headers = httpHeaders.toSingleValueMap();
+            headers.forEach((k, v) -> {
+                k = k.toLowerCase();
+                if (k.startsWith(passXHeader)) {
+                    // user defined headers, we pass it as a variables
+//                    k = CaseFormat.LOWER_HYPHEN.to(CaseFormat.LOWER_CAMEL, k);
+                    xHeaders.put(k, v);
+                }
+            });
+        }
+        return xHeaders;
+    }
+
+    /**
+     * The first non blank character of a JSON body, left unread, '[' for a batch.
+     */
+    public static int peekJsonToken(PushbackInputStream in) throws IOException {
+        int c;
+        do {
+            c = in.read();
+        } while (c == ' ' || c == '\t' || c == '\r' || c == '\n');
+        if (c >= 0) {
+            in.unread(c);
+        }
+        return c;
+    }
+
+    /**
+     * @return the hash of an automatic persisted query, or null
+     */
+    public static String getPersistedQueryHash(Map<String, Object> extensions) {
+        if (extensions == null) {
+            return null;
+        }
+        Object persistedQuery = extensions.get("persistedQuery");
+        if (!(persistedQuery instanceof Map)) {
+            return null;
+        }
+        Object hash = ((Map) persistedQuery).get("sha256Hash");
+        return hash instanceof String ? ((String) hash).toLowerCase() : null;
+    }
+
+    /**
+     * Runs the invocation once the {@link GraphQLRequestLimiter} admits it, right away without a limiter.
+     */
+    public static CompletableFuture<ExecutionResult> admit(
+            GraphQLRequestLimiter requestLimiter,
+            String operationName,
+            Object context,
+            Supplier<CompletableFuture<ExecutionResult>> invocation) {
+        if (requestLimiter == null) {
+            return invocation.get();
+        }
+        return requestLimiter.execute(operationName, context, invocation);
+    }
+
+    /**
+     * The result of an operation of a batch, an OVERLOADED error if the {@link GraphQLRequestLimiter} rejected it:
+     * the other operations of the batch ran, a 503 would make the client retry them all.
+     */
+    public static CompletableFuture<ExecutionResult> overloadedAsError(CompletableFuture<ExecutionResult> result) {
+        return result.handle((r, t) -> {
+            if (t == null) {
+                return CompletableFuture.completedFuture(r);
+            }
+            Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            if (cause instanceof OverloadedException) {
+                return errorResult(new GraphQLRequestError(((OverloadedException) cause).getReason(), GraphQLRequestError.OVERLOADED));
+            }
+            CompletableFuture<ExecutionResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(cause);
+            return failed;
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * The body of a 503 response to an operation rejected by the {@link GraphQLRequestLimiter}.
+     */
+    public static Map<String, Object> overloaded(OverloadedException e) {
+        return new ExecutionResultImpl(new GraphQLRequestError(e.getReason(), GraphQLRequestError.OVERLOADED)).toSpecification();
+    }
+
+    public static CompletableFuture<ExecutionResult> errorResult(GraphQLRequestError error) {
+        return CompletableFuture.completedFuture(new ExecutionResultImpl(error));
+    }
+}
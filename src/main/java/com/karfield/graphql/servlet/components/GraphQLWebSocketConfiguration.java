@@ -0,0 +1,40 @@
+package com.karfield.graphql.servlet.components;
+
+import graphql.Internal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Serves the {@link GraphQLWebSocketHandler} on graphql.subscriptions.endpoint when spring-websocket is present,
+ * unless graphql.subscriptions.enabled is false.
+ */
+@Configuration
+@EnableWebSocket
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnClass(name = "org.springframework.web.socket.WebSocketHandler")
+@ConditionalOnProperty(name = "graphql.subscriptions.enabled", havingValue = "true", matchIfMissing = true)
+@Internal
+public class GraphQLWebSocketConfiguration implements WebSocketConfigurer {
+
+    @Autowired
+    GraphQLWebSocketHandler graphQLWebSocketHandler;
+
+    @Value("${graphql.subscriptions.endpoint:subscriptions}")
+    String endpoint;
+
+    @Value("${graphql.subscriptions.allowed-origins:}")
+    String[] allowedOrigins;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        String path = endpoint.startsWith("/") ? endpoint : "/" + endpoint;
+        registry.addHandler(graphQLWebSocketHandler, path).setAllowedOrigins(allowedOrigins);
+    }
+}
@@ -0,0 +1,285 @@
+package com.karfield.graphql.servlet.components;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.karfield.graphql.servlet.GraphQLInvocation;
+import com.karfield.graphql.servlet.GraphQLInvocationData;
+import com.karfield.graphql.servlet.IncrementalDelivery;
+import com.karfield.graphql.servlet.JsonSerializer;
+import com.karfield.graphql.support.GraphQLRequestLimiter;
+import com.karfield.graphql.support.OverloadedException;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.Internal;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs GraphQL operations, subscriptions in particular, over a WebSocket.
+ * <p>
+ * Both the graphql-transport-ws protocol of the graphql-ws library and the older graphql-ws protocol of
+ * subscriptions-transport-ws are spoken, chosen by the sub-protocol the client asks for. The context of the
+ * connection holds the x-headers of the handshake, and the payload of connection_init under
+ * {@value #CONNECTION_PARAMS}, so it can never pass for one of the headers.
+ * <p>
+ * Operations go through the {@link GraphQLInvocation} like HTTP requests do (execution input customizer, data loaders,
+ * timeouts...), with the handshake as their {@link org.springframework.web.context.request.WebRequest}, and are
+ * admitted by the {@link GraphQLRequestLimiter} if there is one.
+ * <p>
+ * Each connection buffers at most graphql.subscriptions.buffer-size data messages for a slow client,
+ * graphql.subscriptions.overflow tells which to drop past that: the new one (DROP) or the oldest one (LATEST).
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnClass(name = "org.springframework.web.socket.WebSocketHandler")
+@Internal
+public class GraphQLWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
+
+    static final String GRAPHQL_TRANSPORT_WS = "graphql-transport-ws";
+    static final String GRAPHQL_WS = "graphql-ws";
+
+    /**
+     * The context key of the payload of connection_init.
+     */
+    public static final String CONNECTION_PARAMS = "connectionParams";
+
+    private static final String CONNECTION = "graphql.connection";
+    private static final Subscription PENDING = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    @Autowired
+    GraphQLInvocation graphQLInvocation;
+
+    @Autowired(required = false)
+    GraphQLRequestLimiter requestLimiter;
+
+    @Autowired
+    JsonSerializer jsonSerializer;
+
+    @Autowired
+    private String passXHeader;
+
+    @Value("${graphql.subscriptions.buffer-size:256}")
+    int bufferSize;
+
+    @Value("${graphql.subscriptions.overflow:LATEST}")
+    WebSocketConnection.Overflow overflow;
+
+    @Override
+    public List<String> getSubProtocols() {
+        return ImmutableList.of(GRAPHQL_TRANSPORT_WS, GRAPHQL_WS);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        Map<String, Object> context = GraphQLRequestSupport.buildContext(session.getHandshakeHeaders(), passXHeader);
+        session.getAttributes().put(CONNECTION, new WebSocketConnection(session, context, bufferSize, overflow,
+                new HandshakeWebRequest(session)));
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        WebSocketConnection connection = (WebSocketConnection) session.getAttributes().get(CONNECTION);
+        if (connection != null) {
+            connection.cancelAll();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void handleTextMessage(WebSocketSession session, TextMessage textMessage) {
+        WebSocketConnection connection = (WebSocketConnection) session.getAttributes().get(CONNECTION);
+        boolean legacy = GRAPHQL_WS.equals(session.getAcceptedProtocol());
+        Map<String, Object> message;
+        try {
+            message = jsonSerializer.deserialize(textMessage.getPayload(), Map.class);
+        } catch (RuntimeException e) {
+            connection.close(new CloseStatus(4400, "Invalid message"));
+            return;
+        }
+        String type = String.valueOf(message.get("type"));
+        String id = message.get("id") instanceof String ? (String) message.get("id") : null;
+        Object payload = message.get("payload");
+
+        switch (type) {
+            case "connection_init":
+                if (connection.isInitialized()) {
+                    connection.close(new CloseStatus(4429, "Too many initialisation requests"));
+                    return;
+                }
+                if (payload instanceof Map) {
+                    connection.getContext().put(CONNECTION_PARAMS, payload);
+                }
+                connection.setInitialized();
+                connection.sendControl(message("connection_ack", null, null));
+                return;
+            case "ping":
+                connection.sendControl(message("pong", null, null));
+                return;
+            case "pong":
+                return;
+            case "start":
+            case "subscribe":
+                if (!connection.isInitialized()) {
+                    connection.close(new CloseStatus(4401, "Unauthorized"));
+                    return;
+                }
+                if (id == null || !(payload instanceof Map)) {
+                    connection.close(new CloseStatus(4400, "Invalid message"));
+                    return;
+                }
+                if (!connection.addSubscription(id, PENDING)) {
+                    connection.close(new CloseStatus(4409, "Subscriber for " + id + " already exists"));
+                    return;
+                }
+                execute(connection, legacy, id, (Map<String, Object>) payload);
+                return;
+            case "stop":
+            case "complete":
+                if (id != null) {
+                    connection.cancel(id);
+                }
+                return;
+            case "connection_terminate":
+                connection.close(CloseStatus.NORMAL);
+                return;
+            default:
+                connection.close(new CloseStatus(4400, "Unknown message type " + type));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void execute(WebSocketConnection connection, boolean legacy, String id, Map<String, Object> payload) {
+        GraphQLInvocationData invocationData = new GraphQLInvocationData(
+                payload.get("query") instanceof String ? (String) payload.get("query") : "",
+                payload.get("operationName") instanceof String ? (String) payload.get("operationName") : null,
+                payload.get("variables") instanceof Map ? (Map<String, Object>) payload.get("variables") : null);
+        Map<String, Object> context = connection.getContext();
+        CompletableFuture<ExecutionResult> execution;
+        try {
+            execution = GraphQLRequestSupport.admit(requestLimiter, invocationData.getOperationName(), context,
+                    () -> graphQLInvocation.invoke(invocationData, connection.getWebRequest(), context));
+        } catch (RuntimeException e) {
+            execution = new CompletableFuture<>();
+            execution.completeExceptionally(e);
+        }
+        execution
+                .thenCompose(IncrementalDelivery::awaitDeferred)
+                .whenComplete((result, t) -> {
+                    if (t != null) {
+                        Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                        result = cause instanceof OverloadedException
+                                ? new ExecutionResultImpl(new GraphQLRequestError(((OverloadedException) cause).getReason(), GraphQLRequestError.OVERLOADED))
+                                : new ExecutionResultImpl(GraphqlErrorBuilder.newError().message(String.valueOf(cause.getMessage())).build());
+                    }
+                    if (result.getData() instanceof Publisher && result.getErrors().isEmpty()) {
+                        ((Publisher<ExecutionResult>) result.getData()).subscribe(new EventSubscriber(connection, legacy, id));
+                    } else if (!result.getErrors().isEmpty() && (result.getData() == null || result.getData() instanceof Publisher)) {
+                        // the operation failed before it started
+                        if (connection.removeSubscription(id)) {
+                            sendError(connection, legacy, id, result.getErrors());
+                        }
+                    } else if (connection.hasSubscription(id)) {
+                        // a query or a mutation, answered once
+                        connection.sendData(message(legacy ? "data" : "next", id, result.toSpecification()));
+                        if (connection.removeSubscription(id)) {
+                            connection.sendControl(message("complete", id, null));
+                        }
+                    }
+                });
+    }
+
+    private void sendError(WebSocketConnection connection, boolean legacy, String id, List<?> errors) {
+        List<Object> specification = Lists.newArrayList();
+        for (Object error : errors) {
+            specification.add(error instanceof GraphQLError ? ((GraphQLError) error).toSpecification() : error);
+        }
+        // the legacy protocol carries a single error
+        connection.sendControl(message("error", id, legacy ? specification.get(0) : specification));
+    }
+
+    private String message(String type, String id, Object payload) {
+        Map<String, Object> message = Maps.newLinkedHashMap();
+        if (id != null) {
+            message.put("id", id);
+        }
+        message.put("type", type);
+        if (payload != null) {
+            message.put("payload", payload);
+        }
+        return jsonSerializer.serialize(message);
+    }
+
+    /**
+     * Forwards the events of a subscription one at a time, the connection buffer decides whether they are sent.
+     */
+    private class EventSubscriber implements Subscriber<ExecutionResult> {
+        private final WebSocketConnection connection;
+        private final boolean legacy;
+        private final String id;
+        private Subscription subscription;
+
+        EventSubscriber(WebSocketConnection connection, boolean legacy, String id) {
+            this.connection = connection;
+            this.legacy = legacy;
+            this.id = id;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            connection.replaceSubscription(id, s);
+            s.request(1);
+        }
+
+        @Override
+        public void onNext(ExecutionResult result) {
+            connection.sendData(message(legacy ? "data" : "next", id, result.toSpecification()));
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (connection.removeSubscription(id)) {
+                log.debug("subscription {} failed", id, t);
+                sendError(connection, legacy, id, ImmutableList.of(ImmutableMap.of("message", String.valueOf(t.getMessage()))));
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (connection.removeSubscription(id)) {
+                connection.sendControl(message("complete", id, null));
+            }
+        }
+    }
+}
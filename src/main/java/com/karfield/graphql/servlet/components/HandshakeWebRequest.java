@@ -0,0 +1,174 @@
+package com.karfield.graphql.servlet.components;
+
+import com.google.common.collect.Iterators;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.security.Principal;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The handshake of a WebSocket connection seen as a {@link WebRequest}, so operations sent over the connection go
+ * through the same {@link com.karfield.graphql.servlet.GraphQLInvocation} and
+ * {@link com.karfield.graphql.servlet.ExecutionInputCustomizer} as HTTP requests: its headers, the parameters of its
+ * URI, its principal, and the attributes of the session for both request and session scopes.
+ */
+class HandshakeWebRequest implements WebRequest {
+
+    private final WebSocketSession session;
+    private final HttpHeaders headers;
+    private final MultiValueMap<String, String> parameters;
+
+    HandshakeWebRequest(WebSocketSession session) {
+        this.session = session;
+        this.headers = session.getHandshakeHeaders();
+        this.parameters = session.getUri() != null
+                ? UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams()
+                : new LinkedMultiValueMap<>();
+    }
+
+    @Override
+    public String getHeader(String headerName) {
+        return headers.getFirst(headerName);
+    }
+
+    @Override
+    public String[] getHeaderValues(String headerName) {
+        List<String> values = headers.get(headerName);
+        return values != null ? values.toArray(new String[0]) : null;
+    }
+
+    @Override
+    public Iterator<String> getHeaderNames() {
+        return headers.keySet().iterator();
+    }
+
+    @Override
+    public String getParameter(String paramName) {
+        return parameters.getFirst(paramName);
+    }
+
+    @Override
+    public String[] getParameterValues(String paramName) {
+        List<String> values = parameters.get(paramName);
+        return values != null ? values.toArray(new String[0]) : null;
+    }
+
+    @Override
+    public Iterator<String> getParameterNames() {
+        return parameters.keySet().iterator();
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        return parameters.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toArray(new String[0])));
+    }
+
+    @Override
+    public Locale getLocale() {
+        List<Locale> locales = headers.getAcceptLanguageAsLocales();
+        return locales.isEmpty() ? Locale.getDefault() : locales.get(0);
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public String getRemoteUser() {
+        Principal principal = session.getPrincipal();
+        return principal != null ? principal.getName() : null;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return session.getPrincipal();
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return session.getUri() != null && "wss".equalsIgnoreCase(session.getUri().getScheme());
+    }
+
+    @Override
+    public boolean checkNotModified(long lastModifiedTimestamp) {
+        return false;
+    }
+
+    @Override
+    public boolean checkNotModified(String etag) {
+        return false;
+    }
+
+    @Override
+    public boolean checkNotModified(String etag, long lastModifiedTimestamp) {
+        return false;
+    }
+
+    @Override
+    public String getDescription(boolean includeClientInfo) {
+        String description = "uri=" + session.getUri();
+        if (includeClientInfo) {
+            description += ";session=" + session.getId();
+            if (getRemoteUser() != null) {
+                description += ";user=" + getRemoteUser();
+            }
+        }
+        return description;
+    }
+
+    @Override
+    public Object getAttribute(String name, int scope) {
+        return session.getAttributes().get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value, int scope) {
+        session.getAttributes().put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name, int scope) {
+        session.getAttributes().remove(name);
+    }
+
+    @Override
+    public String[] getAttributeNames(int scope) {
+        return Iterators.toArray(session.getAttributes().keySet().iterator(), String.class);
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback, int scope) {
+        // the session outlives the operation, nothing to destroy with it
+    }
+
+    @Override
+    public Object resolveReference(String key) {
+        return key.equals(REFERENCE_SESSION) ? session : null;
+    }
+
+    @Override
+    public String getSessionId() {
+        return session.getId();
+    }
+
+    @Override
+    public Object getSessionMutex() {
+        return session;
+    }
+}
@@ -0,0 +1,171 @@
+package com.karfield.graphql.servlet.components;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.karfield.graphql.servlet.IncrementalDelivery;
+import com.karfield.graphql.servlet.JsonSerializer;
+import com.karfield.graphql.servlet.PersistedQueryStore;
+import com.karfield.graphql.support.CacheControlInstrumentation;
+import com.karfield.graphql.support.GraphQLSchemaReloadedEvent;
+import graphql.ExecutionResult;
+import graphql.Internal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Answers GET requests with HTTP caching headers: Cache-Control from the cache policy computed by
+ * {@link CacheControlInstrumentation}, an ETag of the body, and 304 Not Modified when If-None-Match matches it.
+ * <p>
+ * With graphql.http-cache.size above 0, public responses are also kept in memory until their max age has passed,
+ * keyed by the query hash, operation name, variables and the request headers listed in graphql.http-cache.headers,
+ * e.g. "Accept-Language,x-tenant". Public responses name them in Vary, so shared caches key on them too: a resolver
+ * whose result depends on any other header should declare a private scope.
+ */
+@Component
+@ConditionalOnProperty(name = "graphql.http-cache.enabled", havingValue = "true")
+@Internal
+public class HttpResponseCache {
+
+    @Autowired
+    JsonSerializer jsonSerializer;
+
+    @Value("${graphql.http-cache.size:0}")
+    long size;
+
+    @Value("${graphql.http-cache.headers:}")
+    String[] headers;
+
+    private Cache<List<Object>, CachedResponse> cache;
+
+    @PostConstruct
+    public void init() {
+        if (size > 0) {
+            cache = CacheBuilder.newBuilder().maximumSize(size).build();
+        }
+    }
+
+    /**
+     * Responses of the previous schema may not be valid anymore.
+     */
+    @EventListener
+    public void onSchemaReloaded(GraphQLSchemaReloadedEvent event) {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public CompletableFuture<ResponseEntity<byte[]>> execute(
+            String query,
+            String operationName,
+            Map<String, Object> variables,
+            HttpHeaders requestHeaders,
+            String persistedQueryHash,
+            Supplier<CompletableFuture<ExecutionResult>> invocation) {
+        String ifNoneMatch = requestHeaders.getFirst(HttpHeaders.IF_NONE_MATCH);
+        List<Object> key = null;
+        if (cache != null) {
+            String queryHash = query != null && !query.equals("") ? PersistedQueryStore.hash(query) : persistedQueryHash;
+            List<List<String>> values = new ArrayList<>(headers.length);
+            for (String header : headers) {
+                values.add(requestHeaders.get(header));
+            }
+            key = Arrays.asList(queryHash, operationName, variables, values);
+            CachedResponse cached = cache.getIfPresent(key);
+            if (cached != null) {
+                long remaining = TimeUnit.NANOSECONDS.toSeconds(cached.expiresAt - System.nanoTime());
+                if (remaining > 0) {
+                    return CompletableFuture.completedFuture(respond(cached, remaining, ifNoneMatch));
+                }
+                cache.asMap().remove(key, cached);
+            }
+        }
+        List<Object> cacheKey = key;
+        return invocation.get()
+                .thenCompose(IncrementalDelivery::awaitDeferred)
+                .thenApply(result -> {
+                    CachedResponse response = toResponse(result);
+                    if (cacheKey != null && response.maxAge > 0 && !response.isPrivate) {
+                        cache.put(cacheKey, response);
+                    }
+                    return respond(response, response.maxAge, ifNoneMatch);
+                });
+    }
+
+    private CachedResponse toResponse(ExecutionResult result) {
+        byte[] body = jsonSerializer.serialize(result.toSpecification()).getBytes(Charsets.UTF_8);
+        String etag = "\"" + Hashing.murmur3_128().hashBytes(body) + "\"";
+        int maxAge = 0;
+        boolean isPrivate = false;
+        Object policy = result.getExtensions() != null ? result.getExtensions().get(CacheControlInstrumentation.EXTENSION) : null;
+        if (policy instanceof Map) {
+            maxAge = (Integer) ((Map) policy).get("maxAge");
+            isPrivate = "PRIVATE".equals(((Map) policy).get("scope"));
+        }
+        return new CachedResponse(body, etag, maxAge, isPrivate);
+    }
+
+    private ResponseEntity<byte[]> respond(CachedResponse response, long maxAge, String ifNoneMatch) {
+        CacheControl cacheControl = maxAge > 0
+                ? CacheControl.maxAge(maxAge, TimeUnit.SECONDS)
+                : CacheControl.noCache();
+        boolean isPublic = !response.isPrivate && maxAge > 0;
+        cacheControl = response.isPrivate ? cacheControl.cachePrivate() : isPublic ? cacheControl.cachePublic() : cacheControl;
+        boolean notModified = ifNoneMatch != null && matches(ifNoneMatch, response.etag);
+        ResponseEntity.BodyBuilder builder = notModified
+                ? ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                : ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8);
+        builder.eTag(response.etag).cacheControl(cacheControl);
+        if (isPublic && headers.length > 0) {
+            builder.varyBy(headers);
+        }
+        return notModified ? builder.build() : builder.body(response.body);
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class CachedResponse {
+        final byte[] body;
+        final String etag;
+        final int maxAge;
+        final boolean isPrivate;
+        final long expiresAt;
+
+        CachedResponse(byte[] body, String etag, int maxAge, boolean isPrivate) {
+            this.body = body;
+            this.etag = etag;
+            this.maxAge = maxAge;
+            this.isPrivate = isPrivate;
+            this.expiresAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxAge);
+        }
+    }
+}
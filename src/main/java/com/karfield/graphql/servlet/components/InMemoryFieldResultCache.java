@@ -0,0 +1,60 @@
+package com.karfield.graphql.servlet.components;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.karfield.graphql.servlet.FieldCacheKey;
+import com.karfield.graphql.servlet.FieldResultCache;
+import graphql.Internal;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * The default {@link FieldResultCache}: an in-memory cache bounded to graphql.field-cache.size values,
+ * which are dropped once their TTL has passed or when the least recently used ones are evicted.
+ */
+@Internal
+public class InMemoryFieldResultCache implements FieldResultCache {
+
+    @Value("${graphql.field-cache.size:10000}")
+    long size;
+
+    private Cache<FieldCacheKey, Entry> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder().maximumSize(size).build();
+    }
+
+    @Override
+    public Object get(FieldCacheKey key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt - System.nanoTime() <= 0) {
+            cache.asMap().remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(FieldCacheKey key, Object value, long ttlMillis) {
+        cache.put(key, new Entry(value, System.nanoTime() + ttlMillis * 1_000_000L));
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private static class Entry {
+        final Object value;
+        final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
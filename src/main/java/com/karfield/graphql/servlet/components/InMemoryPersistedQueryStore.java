@@ -0,0 +1,73 @@
+package com.karfield.graphql.servlet.components;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.io.CharStreams;
+import com.karfield.graphql.servlet.PersistedQueryStore;
+import graphql.Internal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Map;
+
+/**
+ * The default {@link PersistedQueryStore}: an LRU bounded in-memory cache of the queries registered by clients,
+ * in front of an optional allowlist loaded from the classpath at startup
+ * (by default every {@code persisted-queries/*.graphql} file next to schema.graphqls, one operation per file).
+ */
+@Slf4j
+@Internal
+public class InMemoryPersistedQueryStore implements PersistedQueryStore {
+
+    @Value("${graphql.persisted-queries.size:1000}")
+    long size;
+
+    @Value("${graphql.persisted-queries.allowlist:classpath*:persisted-queries/*.graphql}")
+    String allowlistLocation;
+
+    private final Map<String, String> allowlist = Maps.newHashMap();
+
+    private Cache<String, String> cache;
+
+    @PostConstruct
+    public void init() throws IOException {
+        cache = CacheBuilder.newBuilder().maximumSize(size).build();
+        if (allowlistLocation.equals("")) {
+            return;
+        }
+        Resource[] resources = new PathMatchingResourcePatternResolver().getResources(allowlistLocation);
+        for (Resource resource : resources) {
+            try (Reader reader = new InputStreamReader(resource.getInputStream(), Charsets.UTF_8)) {
+                String query = CharStreams.toString(reader);
+                allowlist.put(PersistedQueryStore.hash(query), query);
+            }
+        }
+        if (!allowlist.isEmpty()) {
+            log.info("loaded " + allowlist.size() + " persisted queries from " + allowlistLocation);
+        }
+    }
+
+    @Override
+    public String get(String sha256Hash) {
+        String query = allowlist.get(sha256Hash);
+        if (query != null) {
+            return query;
+        }
+        return cache.getIfPresent(sha256Hash);
+    }
+
+    @Override
+    public void put(String sha256Hash, String query) {
+        if (!allowlist.containsKey(sha256Hash)) {
+            cache.put(sha256Hash, query);
+        }
+    }
+}
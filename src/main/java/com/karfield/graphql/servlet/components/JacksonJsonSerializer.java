@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 @Component
 public class JacksonJsonSerializer implements JsonSerializer {
@@ -34,4 +35,13 @@ public class JacksonJsonSerializer implements JsonSerializer {
             throw new RuntimeException("Error deserializing object from JSON: " + e.getMessage(), e);
         }
     }
+
+    @Override
+    public <T> T deserialize(InputStream json, Class<T> requiredType) {
+        try {
+            return objectMapper.readValue(json, requiredType);
+        } catch (IOException e) {
+            throw new RuntimeException("Error deserializing object from JSON: " + e.getMessage(), e);
+        }
+    }
 }
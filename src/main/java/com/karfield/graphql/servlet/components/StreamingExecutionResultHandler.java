@@ -0,0 +1,43 @@
+package com.karfield.graphql.servlet.components;
+
+import com.karfield.graphql.servlet.ExecutionResultHandler;
+import com.karfield.graphql.servlet.IncrementalDelivery;
+import com.karfield.graphql.servlet.JsonSerializer;
+import graphql.ExecutionResult;
+import graphql.Internal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hands the {@link ExecutionResult} itself to the {@link ExecutionResultHttpMessageConverter},
+ * so large responses are serialized while being written rather than copied into a specification map.
+ */
+@Component
+@Internal
+@ConditionalOnProperty(name = "graphql.streaming-response", havingValue = "true")
+public class StreamingExecutionResultHandler implements ExecutionResultHandler {
+
+    @Autowired
+    JsonSerializer jsonSerializer;
+
+    @Override
+    public Object handleExecutionResult(CompletableFuture<ExecutionResult> executionResultCF) {
+        return executionResultCF;
+    }
+
+    @Override
+    public Object handleIncrementalExecutionResult(CompletableFuture<ExecutionResult> executionResultCF) {
+        return executionResultCF.thenApply(result -> IncrementalDelivery.getDeferredResults(result) == null
+                ? IncrementalDelivery.json(result)
+                : IncrementalDelivery.multipart(result, jsonSerializer));
+    }
+
+    @Override
+    public Object handleExecutionResults(CompletableFuture<List<ExecutionResult>> executionResultsCF) {
+        return executionResultsCF.thenApply(results -> results.toArray(new ExecutionResult[0]));
+    }
+}
@@ -0,0 +1,200 @@
+package com.karfield.graphql.servlet.components;
+
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The state of a GraphQL WebSocket connection: its context, its running subscriptions, and a bounded buffer
+ * of outgoing messages.
+ * <p>
+ * Messages are sent by whichever thread finds the session idle, the others only queue theirs, so a slow client
+ * fills the buffer instead of blocking every publisher. Once the buffer holds {@code bufferSize} data messages,
+ * a new one is dropped, or the oldest one is to keep the latest values, depending on the {@link Overflow} policy.
+ * Control messages (acknowledgements, errors, completions) are never dropped.
+ */
+@Slf4j
+class WebSocketConnection {
+
+    enum Overflow {
+        DROP, LATEST
+    }
+
+    private final WebSocketSession session;
+    private final Map<String, Object> context;
+    private final int bufferSize;
+    private final Overflow overflow;
+    private final WebRequest webRequest;
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Deque<Outgoing> buffer = new ArrayDeque<>();
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private int bufferedData;
+    private volatile boolean initialized;
+
+    WebSocketConnection(WebSocketSession session, Map<String, Object> context, int bufferSize, Overflow overflow,
+                        WebRequest webRequest) {
+        this.session = session;
+        this.context = context;
+        this.bufferSize = bufferSize;
+        this.overflow = overflow;
+        this.webRequest = webRequest;
+    }
+
+    Map<String, Object> getContext() {
+        return context;
+    }
+
+    /**
+     * The handshake, as the web request of the operations.
+     */
+    WebRequest getWebRequest() {
+        return webRequest;
+    }
+
+    boolean isInitialized() {
+        return initialized;
+    }
+
+    void setInitialized() {
+        initialized = true;
+    }
+
+    /**
+     * @return false if a subscription with this id is already running
+     */
+    boolean addSubscription(String id, Subscription subscription) {
+        return subscriptions.putIfAbsent(id, subscription) == null;
+    }
+
+    boolean hasSubscription(String id) {
+        return subscriptions.containsKey(id);
+    }
+
+    void replaceSubscription(String id, Subscription subscription) {
+        if (subscriptions.replace(id, subscription) == null) {
+            // stopped meanwhile
+            subscription.cancel();
+        }
+    }
+
+    boolean removeSubscription(String id) {
+        return subscriptions.remove(id) != null;
+    }
+
+    void cancel(String id) {
+        Subscription subscription = subscriptions.remove(id);
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    void cancelAll() {
+        subscriptions.keySet().forEach(this::cancel);
+    }
+
+    void sendControl(String message) {
+        enqueue(new Outgoing(message, false));
+    }
+
+    void sendData(String message) {
+        enqueue(new Outgoing(message, true));
+    }
+
+    void close(CloseStatus status) {
+        cancelAll();
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.debug("failed to close websocket session {}", session.getId(), e);
+        }
+    }
+
+    private void enqueue(Outgoing message) {
+        synchronized (buffer) {
+            if (message.data && bufferedData >= bufferSize) {
+                if (overflow == Overflow.DROP) {
+                    log.debug("websocket session {} is too slow, dropping a message", session.getId());
+                    message = null;
+                } else {
+                    dropOldestData();
+                }
+            }
+            if (message != null) {
+                buffer.add(message);
+                if (message.data) {
+                    bufferedData++;
+                }
+            }
+        }
+        flush();
+    }
+
+    private void dropOldestData() {
+        for (Iterator<Outgoing> it = buffer.iterator(); it.hasNext(); ) {
+            if (it.next().data) {
+                it.remove();
+                bufferedData--;
+                log.debug("websocket session {} is too slow, dropping its oldest message", session.getId());
+                return;
+            }
+        }
+    }
+
+    private void flush() {
+        // re-checked after unlocking, a message may have been queued while this thread was sending
+        while (hasBuffered() && sendLock.tryLock()) {
+            try {
+                Outgoing message;
+                while ((message = poll()) != null) {
+                    if (!session.isOpen()) {
+                        return;
+                    }
+                    session.sendMessage(new TextMessage(message.text));
+                }
+            } catch (IOException e) {
+                log.debug("failed to send to websocket session {}", session.getId(), e);
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            } finally {
+                sendLock.unlock();
+            }
+        }
+    }
+
+    private boolean hasBuffered() {
+        synchronized (buffer) {
+            return !buffer.isEmpty() && session.isOpen();
+        }
+    }
+
+    private Outgoing poll() {
+        synchronized (buffer) {
+            Outgoing message = buffer.poll();
+            if (message != null && message.data) {
+                bufferedData--;
+            }
+            return message;
+        }
+    }
+
+    private static class Outgoing {
+        final String text;
+        final boolean data;
+
+        Outgoing(String text, boolean data) {
+            this.text = text;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.karfield.graphql.support;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.base.Defaults;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Primitives;
+import graphql.Internal;
+import org.springframework.util.NumberUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Converts the value of an argument, as coerced by graphql-java, to the declared type of a resolver parameter.
+ * <p>
+ * The conversion is planned once per parameter: values which already have the type are passed as is, enums are
+ * looked up by name, numbers are widened or narrowed, collections and {@link Optional} convert their elements,
+ * and anything else (input objects into POJOs, maps of typed values...) is read by an {@link ObjectReader}
+ * created for the type upfront.
+ */
+@Internal
+@FunctionalInterface
+public interface ArgumentConverter {
+
+    Object convert(Object value);
+
+    /**
+     * @return null if values are passed as they are, i.e. the parameter is an Object
+     */
+    static ArgumentConverter of(Type type, ObjectMapper objectMapper) {
+        JavaType javaType = objectMapper.getTypeFactory().constructType(type);
+        if (javaType.getRawClass().equals(Object.class)) {
+            return null;
+        }
+        return of(javaType, objectMapper);
+    }
+
+    static ArgumentConverter of(JavaType type, ObjectMapper objectMapper) {
+        Class<?> raw = type.getRawClass();
+        if (raw.equals(Object.class)) {
+            return value -> value;
+        }
+
+        if (raw.equals(Optional.class)) {
+            ArgumentConverter content = of(type.containedTypeOrUnknown(0), objectMapper);
+            return value -> Optional.ofNullable(content.convert(value));
+        }
+
+        boolean list = raw.equals(List.class) || raw.equals(Collection.class) || raw.equals(Iterable.class);
+        if (list || raw.equals(Set.class)) {
+            ArgumentConverter content = of(type.getContentType(), objectMapper);
+            return value -> {
+                if (!(value instanceof Collection)) {
+                    // a single value is coerced into a list by graphql-java, but not by a nested input
+                    return value == null ? null : convert(Lists.newArrayList(value), list, content);
+                }
+                return convert((Collection<?>) value, list, content);
+            };
+        }
+
+        ObjectReader reader = objectMapper.readerFor(type);
+        Class<?> boxed = Primitives.wrap(raw);
+        Object nullValue = raw.isPrimitive() ? Defaults.defaultValue(raw) : null;
+        Map<String, ?> constants = raw.isEnum() ? enumConstants(raw) : null;
+        boolean number = Number.class.isAssignableFrom(boxed);
+        return value -> {
+            if (value == null) {
+                return nullValue;
+            }
+            if (boxed.isInstance(value)) {
+                return value;
+            }
+            if (constants != null && value instanceof String) {
+                Object constant = constants.get(value);
+                if (constant == null) {
+                    throw new IllegalArgumentException("no " + raw.getSimpleName() + " constant " + value);
+                }
+                return constant;
+            }
+            if (number && value instanceof Number) {
+                return NumberUtils.convertNumberToTargetClass((Number) value, boxed.asSubclass(Number.class));
+            }
+            return read(objectMapper, reader, type, value);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, ?> enumConstants(Class<?> enumClass) {
+        ImmutableMap.Builder<String, Object> constants = ImmutableMap.builder();
+        for (Enum<?> constant : ((Class<? extends Enum<?>>) enumClass).getEnumConstants()) {
+            constants.put(constant.name(), constant);
+        }
+        return constants.build();
+    }
+
+    /**
+     * The elements converted, the collection itself if none of them changed and it has the declared type.
+     */
+    static Object convert(Collection<?> values, boolean list, ArgumentConverter content) {
+        boolean changed = !(list ? values instanceof List : values instanceof Set);
+        Object[] converted = new Object[values.size()];
+        int i = 0;
+        for (Object value : values) {
+            converted[i] = content.convert(value);
+            changed |= converted[i] != value;
+            i++;
+        }
+        if (!changed) {
+            return values;
+        }
+        List<Object> results = Lists.newArrayList(converted);
+        return list ? results : Sets.newLinkedHashSet(results);
+    }
+
+    static Object read(ObjectMapper objectMapper, ObjectReader reader, JavaType type, Object value) {
+        try {
+            TokenBuffer buffer = new TokenBuffer(objectMapper, false);
+            objectMapper.writeValue(buffer, value);
+            return reader.readValue(buffer.asParser());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("cannot convert argument to " + type + ": " + e.getMessage(), e);
+        }
+    }
+}
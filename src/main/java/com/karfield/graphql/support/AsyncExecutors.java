@@ -0,0 +1,42 @@
+package com.karfield.graphql.support;
+
+import graphql.Internal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executor of {@link com.karfield.graphql.annotations.GraphQLAsync} methods which do not name one:
+ * a bounded thread pool, or one virtual thread per field with graphql.async.virtual-threads on Java 21+.
+ */
+@Slf4j
+@Internal
+final class AsyncExecutors {
+
+    private AsyncExecutors() {
+    }
+
+    static ExecutorService create(Environment environment) {
+        if (environment.getProperty("graphql.async.virtual-threads", Boolean.class, false)) {
+            try {
+                // Java 21+, looked up reflectively as the starter is built for Java 8
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("virtual threads are not available on this runtime, using a thread pool for async resolvers");
+            }
+        }
+        int poolSize = environment.getProperty("graphql.async.pool-size", Integer.class,
+                Runtime.getRuntime().availableProcessors() * 4);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(environment.getProperty("graphql.async.queue-capacity", Integer.class, 1000));
+        executor.setThreadNamePrefix("graphql-async-");
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor.getThreadPoolExecutor();
+    }
+}
@@ -0,0 +1,138 @@
+package com.karfield.graphql.support;
+
+import com.karfield.graphql.annotations.GraphQLBatch;
+import com.karfield.graphql.annotations.GraphQLContext;
+import com.karfield.graphql.support.parameters.ContextParameter;
+import graphql.Internal;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.BatchLoaderEnvironment;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderOptions;
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * A {@link GraphQLBatch} resolver method, wrapped into a data loader for every request,
+ * and the field fetcher which loads its key from that data loader.
+ */
+@Internal
+public class BatchLoaderMethod {
+
+    private final String name;
+    private final MethodInvoker invoker;
+    private final GraphQLBatch batch;
+    private final ContextParameter[] contextParameters;
+    private final boolean mapped;
+
+    public BatchLoaderMethod(String name, Supplier<?> resolver, Method method, GraphQLBatch batch) throws IllegalAccessException {
+        this.name = name;
+        this.invoker = new MethodInvoker(resolver, method);
+        this.batch = batch;
+
+        Parameter[] parameters = method.getParameters();
+        if (parameters.length == 0 || !List.class.isAssignableFrom(parameters[0].getType())) {
+            throw new IllegalArgumentException("@GraphQLBatch method " + method + " should take a List of keys as its first argument");
+        }
+        contextParameters = new ContextParameter[parameters.length - 1];
+        for (int i = 1; i < parameters.length; i++) {
+            GraphQLContext ctx = AnnotationUtils.findAnnotation(parameters[i], GraphQLContext.class);
+            if (ctx == null) {
+                throw new IllegalArgumentException("unsupported argument on @GraphQLBatch method " + method + ", only @GraphQLContext is allowed after the keys");
+            }
+            ContextParameter c = new ContextParameter();
+            c.setName(ctx.key());
+            c.setParameter(parameters[i]);
+            c.setAnnotation(ctx);
+            contextParameters[i - 1] = c;
+        }
+
+        ResolvableType returnType = ResolvableType.forMethodReturnType(method);
+        if (CompletionStage.class.isAssignableFrom(returnType.toClass())) {
+            returnType = returnType.as(CompletionStage.class).getGeneric(0);
+        }
+        Class<?> resultClass = returnType.toClass();
+        if (Map.class.isAssignableFrom(resultClass)) {
+            mapped = true;
+        } else if (List.class.isAssignableFrom(resultClass)) {
+            mapped = false;
+        } else {
+            throw new IllegalArgumentException("@GraphQLBatch method " + method + " should return a List or a Map of values");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataLoader<Object, Object> newDataLoader(Object context) {
+        DataLoaderOptions options = DataLoaderOptions.newOptions()
+                .setCachingEnabled(batch.cache())
+                .setBatchLoaderContextProvider(() -> context);
+        if (batch.maxBatchSize() > 0) {
+            options.setMaxBatchSize(batch.maxBatchSize());
+        }
+        if (mapped) {
+            return DataLoader.newMappedDataLoader((keys, env) -> this.<Map<Object, Object>>load(keys, env), options);
+        }
+        return DataLoader.newDataLoader((keys, env) -> this.<List<Object>>load(keys, env), options);
+    }
+
+    public DataFetcher<CompletableFuture<Object>> getDataFetcher() {
+        return this::fetch;
+    }
+
+    private CompletableFuture<Object> fetch(DataFetchingEnvironment environment) throws Exception {
+        DataLoader<Object, Object> loader = environment.getDataLoader(name);
+        if (loader == null) {
+            throw new IllegalStateException("data loader " + name + " is not registered for this request");
+        }
+        return loader.load(getKey(environment.getSource()));
+    }
+
+    private Object getKey(Object source) throws Exception {
+        if (batch.key().equals("") || source == null) {
+            return source;
+        }
+        if (source instanceof Map) {
+            return ((Map) source).get(batch.key());
+        }
+        PropertyDescriptor pd = BeanUtils.getPropertyDescriptor(source.getClass(), batch.key());
+        if (pd == null || pd.getReadMethod() == null) {
+            throw new IllegalArgumentException("no readable property " + batch.key() + " on " + source.getClass());
+        }
+        return pd.getReadMethod().invoke(source);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletionStage<T> load(Collection<Object> keys, BatchLoaderEnvironment environment) {
+        Object[] args = new Object[contextParameters.length + 1];
+        args[0] = keys instanceof List ? keys : new ArrayList<>(keys);
+        for (int i = 0; i < contextParameters.length; i++) {
+            args[i + 1] = contextParameters[i].resolveContext(environment.getContext());
+        }
+        try {
+            Object result = invoker.invoke(args);
+            if (result instanceof CompletionStage) {
+                return (CompletionStage<T>) result;
+            }
+            return CompletableFuture.completedFuture((T) result);
+        } catch (Exception e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.karfield.graphql.support;
+
+import com.google.common.collect.Maps;
+import com.karfield.graphql.annotations.GraphQLCacheControl;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.execution.ExecutionStepInfo;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.language.OperationDefinition;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Computes the cache policy of each response from the {@link GraphQLCacheControl} hints of the fields it resolved,
+ * and adds it to the extensions of the result as {@code "cacheControl": {"maxAge": 60, "scope": "PUBLIC"}}
+ * for the HTTP layer to turn into headers.
+ */
+public class CacheControlInstrumentation extends SimpleInstrumentation {
+
+    public static final String EXTENSION = "cacheControl";
+
+    private final Map<String, GraphQLCacheControl> hints;
+
+    /**
+     * @param hints the hints by field coordinates ("Type.field")
+     */
+    public CacheControlInstrumentation(Map<String, GraphQLCacheControl> hints) {
+        this.hints = hints;
+    }
+
+    @Override
+    public InstrumentationState createState() {
+        return new PolicyState();
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+        if (parameters.getExecutionContext().getOperationDefinition().getOperation() != OperationDefinition.Operation.QUERY) {
+            PolicyState state = parameters.getInstrumentationState();
+            state.restrict(0, false);
+        }
+        return super.beginExecuteOperation(parameters);
+    }
+
+    @Override
+    public InstrumentationContext<Object> beginFieldFetch(InstrumentationFieldFetchParameters parameters) {
+        ExecutionStepInfo stepInfo = parameters.getExecutionStepInfo();
+        boolean root = stepInfo.getPath().getLevel() == 1;
+        if (root || !hints.isEmpty()) {
+            GraphQLCacheControl hint = hints.get(stepInfo.getFieldContainer().getName() + "." + stepInfo.getFieldDefinition().getName());
+            PolicyState state = parameters.getInstrumentationState();
+            if (hint != null) {
+                state.restrict(hint.maxAge(), hint.scope() == GraphQLCacheControl.Scope.PRIVATE);
+            } else if (root) {
+                state.restrict(0, false);
+            }
+        }
+        return super.beginFieldFetch(parameters);
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult, InstrumentationExecutionParameters parameters) {
+        PolicyState state = parameters.getInstrumentationState();
+        int maxAge = executionResult.getErrors().isEmpty() && state.maxAge != Integer.MAX_VALUE ? state.maxAge : 0;
+        Map<String, Object> policy = new LinkedHashMap<>();
+        policy.put("maxAge", maxAge);
+        policy.put("scope", state.isPrivate ? "PRIVATE" : "PUBLIC");
+
+        Map<Object, Object> extensions = executionResult.getExtensions() == null
+                ? Maps.newLinkedHashMap() : Maps.newLinkedHashMap(executionResult.getExtensions());
+        extensions.put(EXTENSION, policy);
+        return CompletableFuture.completedFuture(
+                new ExecutionResultImpl(executionResult.getData(), executionResult.getErrors(), extensions));
+    }
+
+    private static class PolicyState implements InstrumentationState {
+        private volatile int maxAge = Integer.MAX_VALUE;
+        private volatile boolean isPrivate;
+
+        synchronized void restrict(int maxAge, boolean isPrivate) {
+            this.maxAge = Math.min(this.maxAge, maxAge);
+            this.isPrivate |= isPrivate;
+        }
+    }
+}
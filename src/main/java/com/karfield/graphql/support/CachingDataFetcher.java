@@ -0,0 +1,202 @@
+package com.karfield.graphql.support;
+
+import com.google.common.collect.ImmutableSet;
+import com.karfield.graphql.annotations.GraphQLCacheable;
+import com.karfield.graphql.servlet.FieldCacheKey;
+import com.karfield.graphql.servlet.FieldResultCache;
+import com.karfield.graphql.support.parameters.ArgumentParameter;
+import com.karfield.graphql.support.parameters.ContextParameter;
+import com.karfield.graphql.support.parameters.SourceParameter;
+import graphql.Internal;
+import graphql.execution.DataFetcherResult;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import org.springframework.beans.BeanUtils;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A {@link ResolverDataFetcher} of a {@link GraphQLCacheable} method, its values are kept in a {@link FieldResultCache}.
+ * <p>
+ * Misses of the same key which overlap share one call of the method (single flight),
+ * and count as hits since the method is not called again.
+ */
+@Internal
+public class CachingDataFetcher implements DataFetcher<Object> {
+
+    private final String field;
+    private final ResolverDataFetcher delegate;
+    private final FieldResultCache cache;
+    private final GraphQLCacheable cacheable;
+    private final long ttlMillis;
+    private final int[] keyParameters;
+    private final String[] keyArguments;
+    private final boolean wholeContext;
+    private final boolean wholeSource;
+    private final ConcurrentHashMap<FieldCacheKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingDataFetcher(String field, ResolverDataFetcher delegate, FieldResultCache cache, GraphQLCacheable cacheable) {
+        this.field = field;
+        this.delegate = delegate;
+        this.cache = cache;
+        this.cacheable = cacheable;
+        this.ttlMillis = cacheable.unit().toMillis(cacheable.ttl());
+
+        Set<String> keyArgs = ImmutableSet.copyOf(cacheable.keyArgs());
+        boolean perContext = cacheable.scope() == GraphQLCacheable.Scope.PER_CONTEXT;
+        boolean hasContext = false;
+        boolean hasSource = !cacheable.sourceKey().equals("");
+        List<Integer> indexes = new ArrayList<>();
+        List<String> arguments = new ArrayList<>();
+        ResolverParameter[] parameters = delegate.getBinder().getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            ResolverParameter p = parameters[i];
+            if (p instanceof ArgumentParameter) {
+                if (keyArgs.isEmpty() || keyArgs.contains(((ArgumentParameter) p).getName())) {
+                    indexes.add(i);
+                    arguments.add(((ArgumentParameter) p).getName());
+                }
+            } else if (p instanceof SourceParameter) {
+                if (cacheable.sourceKey().equals("")) {
+                    indexes.add(i);
+                    arguments.add(null);
+                }
+                hasSource = true;
+            } else if (p instanceof ContextParameter && perContext) {
+                indexes.add(i);
+                arguments.add(null);
+                hasContext = true;
+            }
+        }
+        this.keyParameters = indexes.stream().mapToInt(Integer::intValue).toArray();
+        this.keyArguments = arguments.toArray(new String[0]);
+        this.wholeContext = perContext && !hasContext;
+        // a method may read its parent through the environment, the value of one parent is not the value of another
+        this.wholeSource = !hasSource;
+    }
+
+    @Override
+    public Object get(DataFetchingEnvironment environment) throws Exception {
+        Object[] args = delegate.getBinder().bind(environment);
+        FieldCacheKey key = key(environment, args);
+        Object value = cache.get(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            hits.increment();
+            // a copy for each caller, which can not cancel the shared call
+            return running.thenApply(Function.identity());
+        }
+        misses.increment();
+        try {
+            Object result = delegate.invoke(args);
+            if (!(result instanceof CompletionStage)) {
+                store(key, result);
+                inFlight.remove(key, call);
+                call.complete(result);
+                return result;
+            }
+            ((CompletionStage<?>) result).whenComplete((v, t) -> {
+                if (t == null) {
+                    store(key, v);
+                }
+                inFlight.remove(key, call);
+                if (t == null) {
+                    call.complete(v);
+                } else {
+                    call.completeExceptionally(t);
+                }
+            });
+        } catch (Exception e) {
+            inFlight.remove(key, call);
+            call.completeExceptionally(e);
+            throw e;
+        }
+        return call.thenApply(Function.identity());
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void store(FieldCacheKey key, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof DataFetcherResult && ((DataFetcherResult<?>) value).hasErrors()) {
+            return;
+        }
+        cache.put(key, value, ttlMillis);
+    }
+
+    private FieldCacheKey key(DataFetchingEnvironment environment, Object[] args) throws Exception {
+        int n = keyParameters.length;
+        boolean sourceKey = !cacheable.sourceKey().equals("");
+        boolean source = wholeSource && !isRoot(environment);
+        Object[] values = new Object[n + (sourceKey || source ? 1 : 0) + (wholeContext ? 1 : 0)];
+        for (int i = 0; i < n; i++) {
+            // arguments as coerced by graphql-java, a class they are converted to may not implement equals
+            values[i] = keyArguments[i] != null ? environment.getArgument(keyArguments[i]) : args[keyParameters[i]];
+        }
+        if (sourceKey) {
+            values[n++] = sourceKey(environment.getSource());
+        } else if (source) {
+            values[n++] = environment.getSource();
+        }
+        if (wholeContext) {
+            values[n] = environment.getContext();
+        }
+        return new FieldCacheKey(field, Arrays.asList(values));
+    }
+
+    private static boolean isRoot(DataFetchingEnvironment environment) {
+        GraphQLType parent = environment.getParentType();
+        if (parent == null) {
+            return true;
+        }
+        GraphQLSchema schema = environment.getGraphQLSchema();
+        return schema != null && (parent == schema.getQueryType() || parent == schema.getMutationType()
+                || parent == schema.getSubscriptionType());
+    }
+
+    private Object sourceKey(Object source) throws Exception {
+        if (source == null) {
+            return null;
+        }
+        if (source instanceof Map) {
+            return ((Map) source).get(cacheable.sourceKey());
+        }
+        PropertyDescriptor pd = BeanUtils.getPropertyDescriptor(source.getClass(), cacheable.sourceKey());
+        if (pd == null || pd.getReadMethod() == null) {
+            throw new IllegalArgumentException("no readable property " + cacheable.sourceKey() + " on " + source.getClass());
+        }
+        return pd.getReadMethod().invoke(source);
+    }
+}
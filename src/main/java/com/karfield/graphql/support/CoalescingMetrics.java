@@ -0,0 +1,35 @@
+package com.karfield.graphql.support;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Registers the counter graphql.coalescing.requests of the {@link RequestCoalescer}, tagged result=hit for the queries
+ * which shared the result of an identical one and result=miss for the executed ones, and the gauge
+ * graphql.coalescing.in-flight.
+ */
+final class CoalescingMetrics {
+
+    private CoalescingMetrics() {
+    }
+
+    /**
+     * Only called once micrometer is known to be on the classpath, does nothing without a {@link MeterRegistry} bean.
+     */
+    static void bind(ApplicationContext applicationContext, RequestCoalescer coalescer) {
+        MeterRegistry registry = applicationContext.getBeanProvider(MeterRegistry.class).getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        FunctionCounter.builder("graphql.coalescing.requests", coalescer, RequestCoalescer::getHits)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("graphql.coalescing.requests", coalescer, RequestCoalescer::getMisses)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("graphql.coalescing.in-flight", coalescer, RequestCoalescer::getInFlight)
+                .register(registry);
+    }
+}
@@ -0,0 +1,213 @@
+package com.karfield.graphql.support;
+
+import com.google.common.collect.Lists;
+import graphql.Internal;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admits at most {@link #getLimit()} operations at once, the others wait in a bounded queue for a permit
+ * and are rejected with an {@link OverloadedException} once it is full or they waited too long.
+ * <p>
+ * The limit adapts to the latency of the operations, like a gradient limiter: once per window of at least
+ * 10 operations and 100 ms, it grows while their average latency stays within 1.5 times the latency without load,
+ * and shrinks as it rises above, i.e. as operations queue up somewhere (threads, connections, GC).
+ * The latency without load is the lowest average since the last probe: every 100 windows the limit is halved
+ * for a moment, so it is measured again. A window with failed operations cuts the limit by 10%.
+ * It never grows while the operations in flight do not use it.
+ * <p>
+ * Waiters are completed on the executor, never on the thread which released the permit.
+ */
+@Internal
+public class ConcurrencyLimiter {
+
+    private static final double BACKOFF = 0.9;
+    private static final double SMOOTHING = 0.2;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final int WINDOW_SAMPLES = 10;
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int PROBE_INTERVAL = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueSize;
+    private final long maxWaitNanos;
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+
+    // guarded by this
+    private double limit;
+    private int inFlight;
+    private double noLoadRtt;
+    private int windows;
+    private long windowStart = System.nanoTime();
+    private int windowSamples;
+    private long windowRttSum;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int queueSize, long maxWait, TimeUnit unit,
+                              ScheduledExecutorService timer, Executor executor) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueSize = queueSize;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.timer = timer;
+        this.executor = executor;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @return a permit right away if the limit allows it, otherwise once one is released,
+     * failed with an {@link OverloadedException} if the queue is full or the wait exceeds the max wait
+     */
+    public CompletableFuture<Permit> acquire() {
+        Waiter waiter;
+        synchronized (this) {
+            if (inFlight < (int) limit && queue.isEmpty()) {
+                return CompletableFuture.completedFuture(grant());
+            }
+            if (queue.size() >= queueSize || maxWaitNanos <= 0) {
+                rejected.increment();
+                return failed();
+            }
+            waiter = new Waiter();
+            waiter.timeout = timer.schedule(() -> expire(waiter), maxWaitNanos, TimeUnit.NANOSECONDS);
+            queue.add(waiter);
+        }
+        return waiter.future;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    // called with the lock held
+    private Permit grant() {
+        inFlight++;
+        return new Permit(System.nanoTime(), inFlight);
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+        }
+        rejected.increment();
+        waiter.future.completeExceptionally(new OverloadedException("GraphQL server overloaded, waited too long"));
+    }
+
+    private void release(Permit permit, boolean dropped) {
+        List<Waiter> granted = Lists.newArrayList();
+        synchronized (this) {
+            inFlight--;
+            update(System.nanoTime() - permit.start, permit.inFlight, dropped);
+            while (inFlight < (int) limit && !queue.isEmpty()) {
+                Waiter waiter = queue.poll();
+                waiter.permit = grant();
+                granted.add(waiter);
+            }
+        }
+        for (Waiter waiter : granted) {
+            waiter.timeout.cancel(false);
+            executor.execute(() -> waiter.future.complete(waiter.permit));
+        }
+    }
+
+    // called with the lock held
+    private void update(long rtt, int inFlightAtStart, boolean dropped) {
+        windowSamples++;
+        windowRttSum += rtt;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        windowDropped |= dropped;
+        long now = System.nanoTime();
+        if (windowSamples < WINDOW_SAMPLES || now - windowStart < WINDOW_NANOS) {
+            return;
+        }
+        double averageRtt = (double) windowRttSum / windowSamples;
+        int maxInFlight = windowMaxInFlight;
+        boolean anyDropped = windowDropped;
+        windowStart = now;
+        windowSamples = 0;
+        windowRttSum = 0;
+        windowMaxInFlight = 0;
+        windowDropped = false;
+
+        if (anyDropped) {
+            limit = Math.max(minLimit, limit * BACKOFF);
+            return;
+        }
+        if (++windows >= PROBE_INTERVAL) {
+            windows = 0;
+            noLoadRtt = 0;
+            limit = Math.max(minLimit, limit / 2);
+            return;
+        }
+        noLoadRtt = noLoadRtt == 0 ? averageRtt : Math.min(noLoadRtt, averageRtt);
+        if (maxInFlight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * noLoadRtt / averageRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    }
+
+    private static CompletableFuture<Permit> failed() {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        future.completeExceptionally(new OverloadedException("GraphQL server overloaded"));
+        return future;
+    }
+
+    /**
+     * Released once the operation completed, with whether it failed.
+     */
+    public final class Permit {
+        private final long start;
+        private final int inFlight;
+        private boolean released;
+
+        private Permit(long start, int inFlight) {
+            this.start = start;
+            this.inFlight = inFlight;
+        }
+
+        public void release(boolean dropped) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            ConcurrencyLimiter.this.release(this, dropped);
+        }
+    }
+
+    private static final class Waiter {
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+        private ScheduledFuture<?> timeout;
+        private Permit permit;
+    }
+}
@@ -0,0 +1,29 @@
+package com.karfield.graphql.support;
+
+import com.karfield.graphql.servlet.DataLoaderRegistryFactory;
+import graphql.Internal;
+import org.dataloader.DataLoaderRegistry;
+
+import java.util.List;
+
+/**
+ * Registers a new data loader for every {@link com.karfield.graphql.annotations.GraphQLBatch} method on each request.
+ */
+@Internal
+public class DefaultDataLoaderRegistryFactory implements DataLoaderRegistryFactory {
+
+    private final List<BatchLoaderMethod> batchLoaders;
+
+    public DefaultDataLoaderRegistryFactory(List<BatchLoaderMethod> batchLoaders) {
+        this.batchLoaders = batchLoaders;
+    }
+
+    @Override
+    public DataLoaderRegistry create(Object context) {
+        DataLoaderRegistry registry = new DataLoaderRegistry();
+        for (BatchLoaderMethod batchLoader : batchLoaders) {
+            registry.register(batchLoader.getName(), batchLoader.newDataLoader(context));
+        }
+        return registry;
+    }
+}
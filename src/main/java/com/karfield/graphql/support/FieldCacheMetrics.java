@@ -0,0 +1,37 @@
+package com.karfield.graphql.support;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationContext;
+
+import java.util.List;
+
+/**
+ * Registers graphql.field.cache.requests counters per field coordinates and result (hit or miss)
+ * for the {@link CachingDataFetcher}s, the hit rate of a field is hit / (hit + miss).
+ */
+final class FieldCacheMetrics {
+
+    private FieldCacheMetrics() {
+    }
+
+    /**
+     * Only called once micrometer is known to be on the classpath, does nothing without a {@link MeterRegistry} bean.
+     */
+    static void bind(ApplicationContext applicationContext, List<CachingDataFetcher> fetchers) {
+        MeterRegistry registry = applicationContext.getBeanProvider(MeterRegistry.class).getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        for (CachingDataFetcher fetcher : fetchers) {
+            FunctionCounter.builder("graphql.field.cache.requests", fetcher, CachingDataFetcher::getHits)
+                    .tag("field", fetcher.getField())
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("graphql.field.cache.requests", fetcher, CachingDataFetcher::getMisses)
+                    .tag("field", fetcher.getField())
+                    .tag("result", "miss")
+                    .register(registry);
+        }
+    }
+}
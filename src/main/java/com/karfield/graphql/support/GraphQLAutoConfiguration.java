@@ -1,14 +1,29 @@
 package com.karfield.graphql.support;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Charsets;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.io.Resources;
 import com.karfield.graphql.annotations.GraphQLArgument;
 import com.karfield.graphql.annotations.*;
+import com.karfield.graphql.processor.GraphQLIndexProcessor;
+import com.karfield.graphql.servlet.DataLoaderRegistryFactory;
+import com.karfield.graphql.servlet.FieldResultCache;
+import com.karfield.graphql.servlet.PersistedQueryStore;
 import com.karfield.graphql.servlet.components.GraphQLController;
+import com.karfield.graphql.servlet.components.InMemoryFieldResultCache;
+import com.karfield.graphql.servlet.components.InMemoryPersistedQueryStore;
 import com.karfield.graphql.support.parameters.*;
+import graphql.Directives;
 import graphql.GraphQL;
-import graphql.execution.ExecutionPath;
+import graphql.execution.instrumentation.ChainedInstrumentation;
+import graphql.execution.instrumentation.Instrumentation;
 import graphql.schema.*;
 import graphql.schema.idl.RuntimeWiring;
 import graphql.schema.idl.SchemaGenerator;
@@ -16,14 +31,22 @@ import graphql.schema.idl.SchemaParser;
 import graphql.schema.idl.TypeDefinitionRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ClassUtils;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -32,13 +55,22 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 import static graphql.schema.idl.TypeRuntimeWiring.newTypeWiring;
 
 @Slf4j
 @Configuration
 @ConditionalOnWebApplication
-@ComponentScan(basePackageClasses = {DataFetcher.class, Coercing.class, GraphQLController.class})
+// the reactive components are scanned by name, their classes need webflux which is optional
+@ComponentScan(basePackageClasses = {DataFetcher.class, Coercing.class, GraphQLController.class},
+        basePackages = "com.karfield.graphql.reactive.components")
 public class GraphQLAutoConfiguration {
 
     @Autowired
@@ -46,11 +78,147 @@ public class GraphQLAutoConfiguration {
 
     private GraphQL graphQL;
 
+    /**
+     * The instance built at startup, {@link GraphQLSchemaRegistry#getGraphQL()} is the current one
+     * once the schema has been reloaded.
+     */
     @Bean
     public GraphQL graphQL() {
         return graphQL;
     }
 
+    private GraphQLSchemaRegistry schemaRegistry;
+
+    @Bean
+    public GraphQLSchemaRegistry graphQLSchemaRegistry() {
+        return schemaRegistry;
+    }
+
+    private RuntimeWiring runtimeWiring;
+
+    private Instrumentation instrumentation;
+
+    private SchemaFileWatcher schemaWatcher;
+
+    /**
+     * Written at build time by {@link com.karfield.graphql.processor.GraphQLIndexProcessor}, null if there is none
+     * or graphql.index.ignore is true: beans and methods are scanned instead.
+     */
+    private WiringIndex wiringIndex;
+
+    private ListMultimap<Class<? extends Annotation>, WiringPair<?>> indexedWirings;
+
+    private PreparsedDocumentCache preparsedDocumentCache;
+
+    @Bean
+    public PreparsedDocumentCache preparsedDocumentCache() {
+        return preparsedDocumentCache;
+    }
+
+    private final List<BatchLoaderMethod> batchLoaders = Lists.newArrayList();
+
+    private final Map<String, QueryComplexityInstrumentation.FieldCost> fieldCosts = Maps.newHashMap();
+
+    private final List<CachingDataFetcher> cachingDataFetchers = Lists.newArrayList();
+
+    private final Map<String, GraphQLCacheControl> cacheHints = Maps.newHashMap();
+
+    /**
+     * In nanoseconds, by field coordinates.
+     */
+    private final Map<String, Long> fieldTimeouts = Maps.newHashMap();
+
+    private GraphQLTimeouts timeouts;
+
+    /**
+     * Deadlines of the operations and fields, set if a timeout is configured.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public GraphQLTimeouts graphQLTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * With graphql.lazy-resolvers (the default) resolver beans are created on their first fetch.
+     */
+    private boolean lazyResolvers;
+
+    private final List<Supplier<Object>> lazyBeans = Lists.newArrayList();
+
+    private GraphQLWarmUp warmUp;
+
+    @Bean
+    public static LazyResolverPostProcessor lazyResolverPostProcessor() {
+        return new LazyResolverPostProcessor();
+    }
+
+    @Bean
+    public GraphQLWarmUp graphQLWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * Admission control of the operations, with graphql.limiter.enabled=true.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "graphql.limiter.enabled", havingValue = "true")
+    public GraphQLRequestLimiter graphQLRequestLimiter() {
+        // queued operations are started on a pool thread, not on the one which completed the previous operation
+        GraphQLRequestLimiter requestLimiter = new GraphQLRequestLimiter(applicationContext.getEnvironment(), ForkJoinPool.commonPool());
+        EnableGraphQL config = getGraphQLConfig();
+        if (getProperty("graphql.metrics.enabled", Boolean.class, config != null && config.metrics())
+                && ClassUtils.isPresent("io.micrometer.core.instrument.MeterRegistry", getClass().getClassLoader())) {
+            LimiterMetrics.bind(applicationContext, requestLimiter);
+        }
+        return requestLimiter;
+    }
+
+    /**
+     * Coalescing of identical queries in flight, with graphql.coalescing.enabled=true.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "graphql.coalescing.enabled", havingValue = "true")
+    public RequestCoalescer requestCoalescer() {
+        RequestCoalescer coalescer = new RequestCoalescer(applicationContext.getEnvironment(), preparsedDocumentCache);
+        EnableGraphQL config = getGraphQLConfig();
+        if (getProperty("graphql.metrics.enabled", Boolean.class, config != null && config.metrics())
+                && ClassUtils.isPresent("io.micrometer.core.instrument.MeterRegistry", getClass().getClassLoader())) {
+            CoalescingMetrics.bind(applicationContext, coalescer);
+        }
+        return coalescer;
+    }
+
+    /**
+     * The cache of {@link GraphQLCacheable} values, unless the application has its own.
+     */
+    @Bean
+    @ConditionalOnMissingBean(FieldResultCache.class)
+    public InMemoryFieldResultCache fieldResultCache() {
+        return new InMemoryFieldResultCache();
+    }
+
+    /**
+     * The store of persisted queries, unless the application has its own.
+     */
+    @Bean
+    @ConditionalOnMissingBean(PersistedQueryStore.class)
+    public InMemoryPersistedQueryStore persistedQueryStore() {
+        return new InMemoryPersistedQueryStore();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(DataLoaderRegistryFactory.class)
+    public DataLoaderRegistryFactory dataLoaderRegistryFactory() {
+        return new DefaultDataLoaderRegistryFactory(batchLoaders);
+    }
+
+    /**
+     * The executor of {@link GraphQLAsync} methods which do not name one, created on first use.
+     */
+    private ExecutorService asyncExecutor;
+
+    private ObjectMapper argumentMapper;
+
     private String passXHeader = "";
 
     @Bean
@@ -70,34 +238,137 @@ public class GraphQLAutoConfiguration {
             passXHeader = headerPrefix;
         }
 
-        URL url = Resources.getResource(config.schema());
-        String sdl = Resources.toString(url, Charsets.UTF_8);
-
-        List<String> others = Lists.newArrayList("common.graphql");
-        config.modules();
-        for (String m: config.modules()) {
-            if (!m.equals("common.graphql")) {
-                others.add(m);
+        if (!getProperty("graphql.index.ignore", Boolean.class, false)) {
+            wiringIndex = WiringIndex.load(applicationContext.getClassLoader());
+            if (wiringIndex != null) {
+                log.info("using the graphql wiring index of {} classes", wiringIndex.size());
+            }
+        }
+        lazyResolvers = getProperty("graphql.lazy-resolvers", Boolean.class, true);
+        runtimeWiring = buildWiring();
+        warmUp = new GraphQLWarmUp(lazyBeans, getProperty("graphql.warm-up", Boolean.class, false));
+
+        List<Instrumentation> instrumentations = Lists.newArrayList();
+        int maxQueryDepth = getProperty("graphql.max-query-depth", Integer.class, config.maxQueryDepth());
+        int maxQueryComplexity = getProperty("graphql.max-query-complexity", Integer.class, config.maxQueryComplexity());
+        if (maxQueryDepth > 0 || maxQueryComplexity > 0) {
+            instrumentations.add(new QueryComplexityInstrumentation(maxQueryDepth, maxQueryComplexity, fieldCosts));
+        }
+        if (getProperty("graphql.http-cache.enabled", Boolean.class, false)) {
+            instrumentations.add(new CacheControlInstrumentation(cacheHints));
+        }
+        long requestTimeout = getProperty("graphql.timeout.request-ms", Long.class, 0L);
+        String timeoutHeader = getProperty("graphql.timeout.header", String.class, "");
+        if (requestTimeout > 0 || !timeoutHeader.equals("") || !fieldTimeouts.isEmpty()) {
+            // timed out fields are completed on a pool thread, not on the timer
+            timeouts = new GraphQLTimeouts(requestTimeout, timeoutHeader,
+                    getProperty("graphql.timeout.grace-ms", Long.class, 100L), ForkJoinPool.commonPool());
+            instrumentations.add(new TimeoutInstrumentation(timeouts, fieldTimeouts));
+        }
+        if (getProperty("graphql.metrics.enabled", Boolean.class, config.metrics())) {
+            if (ClassUtils.isPresent("io.micrometer.core.instrument.MeterRegistry", getClass().getClassLoader())) {
+                double sampleRate = getProperty("graphql.metrics.field-sample-rate", Double.class, config.fieldMetricsSampleRate());
+                Instrumentation metrics = MetricsInstrumentation.create(applicationContext, sampleRate);
+                if (metrics != null) {
+                    instrumentations.add(metrics);
+                }
+                FieldCacheMetrics.bind(applicationContext, cachingDataFetchers);
+            } else {
+                log.warn("graphql metrics are enabled but micrometer is not on the classpath");
             }
         }
-        for (String m: others) {
+        if (!instrumentations.isEmpty()) {
+            instrumentation = new ChainedInstrumentation(instrumentations);
+        }
+
+        long documentCacheSize = getProperty("graphql.document-cache.size", Long.class, config.documentCacheSize());
+        long documentCacheWeight = getProperty("graphql.document-cache.weight", Long.class, config.documentCacheWeight());
+        if (documentCacheSize > 0 || documentCacheWeight > 0) {
+            preparsedDocumentCache = new PreparsedDocumentCache(documentCacheSize, documentCacheWeight);
+        }
+
+        schemaRegistry = new GraphQLSchemaRegistry(version -> buildGraphQL(config, version), applicationContext);
+        this.graphQL = schemaRegistry.getGraphQL();
+
+        if (getProperty("graphql.schema.watch", Boolean.class, false)) {
+            schemaWatcher = SchemaFileWatcher.start(schemaRegistry, schemaFiles(config));
+        }
+    }
+
+    /**
+     * Builds the {@link GraphQL} instance of a version of the schema files, with the wiring and instrumentation
+     * created at startup: resolvers are beans and do not change until a restart.
+     */
+    private GraphQL buildGraphQL(EnableGraphQL config, long version) throws Exception {
+        GraphQLSchema graphQLSchema = buildSchema(readSchemaFiles(config));
+        if (graphQLSchema.getDirective(Directives.DeferDirective.getName()) == null) {
+            // @defer is executed by graphql-java but has to be declared to pass validation
+            graphQLSchema = GraphQLSchema.newSchema(graphQLSchema).additionalDirective(Directives.DeferDirective).build();
+        }
+        GraphQL.Builder graphQLBuilder = GraphQL.newGraphQL(graphQLSchema);
+        if (instrumentation != null) {
+            graphQLBuilder.instrumentation(instrumentation);
+        }
+        if (preparsedDocumentCache != null) {
+            graphQLBuilder.preparsedDocumentProvider(preparsedDocumentCache.forSchemaVersion(version));
+        }
+        return graphQLBuilder.build();
+    }
+
+    private String readSchemaFiles(EnableGraphQL config) throws Exception {
+        StringBuilder sdl = new StringBuilder();
+        for (String file : schemaFiles(config)) {
             try {
-                url = Resources.getResource(m);
-                String s = Resources.toString(url, Charsets.UTF_8);
-                sdl += "\n";
-                sdl += s;
+                URL url = Resources.getResource(file);
+                if (sdl.length() > 0) {
+                    sdl.append('\n');
+                }
+                sdl.append(Resources.toString(url, Charsets.UTF_8));
             } catch (IllegalArgumentException e) {
-                continue;
+                if (file.equals(config.schema())) {
+                    throw e;
+                }
+            }
+        }
+        return sdl.toString();
+    }
+
+    /**
+     * The schema file followed by the optional common.graphql and modules, as classpath resources.
+     */
+    private List<String> schemaFiles(EnableGraphQL config) {
+        List<String> files = Lists.newArrayList(config.schema(), "common.graphql");
+        for (String m: config.modules()) {
+            if (!m.equals("common.graphql")) {
+                files.add(m);
             }
         }
+        return files;
+    }
 
-        GraphQLSchema graphQLSchema = buildSchema(sdl);
-        this.graphQL = GraphQL.newGraphQL(graphQLSchema).build();
+    @EventListener
+    public void onSchemaReloaded(GraphQLSchemaReloadedEvent event) {
+        if (preparsedDocumentCache != null) {
+            preparsedDocumentCache.setSchemaVersion(event.getVersion());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (schemaWatcher != null) {
+            schemaWatcher.stop();
+        }
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+        }
+    }
+
+    private <T> T getProperty(String name, Class<T> type, T defaultValue) {
+        return applicationContext.getEnvironment().getProperty(name, type, defaultValue);
     }
 
     private GraphQLSchema buildSchema(String sdl) throws Exception {
         TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(sdl);
-        RuntimeWiring runtimeWiring = buildWiring();
         SchemaGenerator schemaGenerator = new SchemaGenerator();
         return schemaGenerator.makeExecutableSchema(typeRegistry, runtimeWiring);
     }
@@ -107,49 +378,75 @@ public class GraphQLAutoConfiguration {
 
         List<WiringPair<GraphQLScalar>> scalars = scanWirings(GraphQLScalar.class);
         for (WiringPair<GraphQLScalar> scalar: scalars) {
-            if (scalar.instance instanceof Coercing) {
+            if (scalar.instance.get() instanceof Coercing) {
                 builder = builder.scalar(new GraphQLScalarType(
-                        scalar.ann.name(), scalar.ann.description(), (Coercing) scalar.instance));
+                        scalar.ann.name(), scalar.ann.description(), (Coercing) scalar.instance.get()));
             }
         }
 
         List<WiringPair<GraphQLQuery>> queries = scanWirings(GraphQLQuery.class);
         for (WiringPair<GraphQLQuery> query: queries) {
-            if (query.instance instanceof DataFetcher) {
-                builder = wireQuery(builder, query.ann.type(), query.ann.field(), (DataFetcher) query.instance);
+            if (DataFetcher.class.isAssignableFrom(query.type)) {
+                addFieldCost(query.ann.type(), "Query", query.ann.field(), query.ann.cost(), query.ann.costMultiplier());
+                addCacheHint(query.ann.type(), "Query", query.ann.field(), AnnotationUtils.findAnnotation(query.type, GraphQLCacheControl.class));
+                addFieldTimeout(query.ann.type(), "Query", query.ann.field(), AnnotationUtils.findAnnotation(query.type, GraphQLTimeout.class));
+                builder = wireQuery(builder, query.ann.type(), query.ann.field(), getDataFetcher(query));
             }
         }
 
         List<WiringPair<GraphQLMutation>> mutations = scanWirings(GraphQLMutation.class);
         for (WiringPair<GraphQLMutation> mutation: mutations) {
-            if (mutation.instance instanceof DataFetcher) {
-                builder = wireMutation(builder, mutation.ann.type(), mutation.ann.field(), (DataFetcher) mutation.instance);
+            if (DataFetcher.class.isAssignableFrom(mutation.type)) {
+                addFieldCost(mutation.ann.type(), "Mutation", mutation.ann.field(), mutation.ann.cost(), mutation.ann.costMultiplier());
+                addFieldTimeout(mutation.ann.type(), "Mutation", mutation.ann.field(), AnnotationUtils.findAnnotation(mutation.type, GraphQLTimeout.class));
+                builder = wireMutation(builder, mutation.ann.type(), mutation.ann.field(), getDataFetcher(mutation));
+            }
+        }
+
+        List<WiringPair<GraphQLSubscription>> subscriptions = scanWirings(GraphQLSubscription.class);
+        for (WiringPair<GraphQLSubscription> subscription: subscriptions) {
+            if (DataFetcher.class.isAssignableFrom(subscription.type)) {
+                builder = wireSubscription(builder, subscription.ann.type(), subscription.ann.field(), getDataFetcher(subscription));
             }
         }
 
         List<WiringPair<GraphQLInterface>> interfaces = scanWirings(GraphQLInterface.class);
         for (WiringPair<GraphQLInterface> intf: interfaces) {
-            if (intf.instance instanceof TypeResolver) {
-                builder = builder.type(newTypeWiring(intf.ann.value()).typeResolver((TypeResolver) intf.instance));
+            if (intf.instance.get() instanceof TypeResolver) {
+                builder = builder.type(newTypeWiring(intf.ann.value()).typeResolver((TypeResolver) intf.instance.get()));
             }
         }
 
         List<WiringPair<GraphQLUnion>> unions = scanWirings(GraphQLUnion.class);
         for (WiringPair<GraphQLUnion> union: unions) {
-            if (union.instance instanceof TypeResolver) {
-                builder = builder.type(newTypeWiring(union.ann.value()).typeResolver((TypeResolver) union.instance));
+            if (union.instance.get() instanceof TypeResolver) {
+                builder = builder.type(newTypeWiring(union.ann.value()).typeResolver((TypeResolver) union.instance.get()));
             }
         }
 
         List<WiringPair<GraphQLResolver>> resolvers = scanWirings(GraphQLResolver.class);
         for (WiringPair<GraphQLResolver> resolver: resolvers) {
-            builder = registerResolver(builder, resolver.instance);
+            if (lazyResolvers) {
+                lazyBeans.add(resolver.instance);
+            }
+            builder = registerResolver(builder, resolver);
         }
 
         return builder.build();
     }
 
-    private RuntimeWiring.Builder wireType(RuntimeWiring.Builder builder, String name, String defaultName, String field, DataFetcher instance) {
+    /**
+     * The bean itself, or with lazy resolvers a fetcher which creates it on its first fetch.
+     */
+    private DataFetcher<?> getDataFetcher(WiringPair<?> pair) {
+        if (!lazyResolvers) {
+            return (DataFetcher<?>) pair.instance.get();
+        }
+        lazyBeans.add(pair.instance);
+        return environment -> ((DataFetcher<?>) pair.instance.get()).get(environment);
+    }
+
+    private RuntimeWiring.Builder wireType(RuntimeWiring.Builder builder, String name, String defaultName, String field, DataFetcher<?> instance) {
         if (name.equals("")) {
             name = defaultName;
         }
@@ -157,14 +454,48 @@ public class GraphQLAutoConfiguration {
         return builder.type(newTypeWiring(name).dataFetcher(field, instance));
     }
 
-    private RuntimeWiring.Builder wireQuery(RuntimeWiring.Builder builder, String name, String field, DataFetcher instance) {
+    private RuntimeWiring.Builder wireQuery(RuntimeWiring.Builder builder, String name, String field, DataFetcher<?> instance) {
         return wireType(builder, name, "Query", field, instance);
     }
 
-    private RuntimeWiring.Builder wireMutation(RuntimeWiring.Builder builder, String name, String field, DataFetcher instance) {
+    private RuntimeWiring.Builder wireMutation(RuntimeWiring.Builder builder, String name, String field, DataFetcher<?> instance) {
         return wireType(builder, name, "Mutation", field, instance);
     }
 
+    private RuntimeWiring.Builder wireSubscription(RuntimeWiring.Builder builder, String name, String field, DataFetcher<?> instance) {
+        return wireType(builder, name, "Subscription", field, instance);
+    }
+
+    private void addFieldCost(String name, String defaultName, String field, int cost, String costMultiplier) {
+        if (cost == 1 && costMultiplier.equals("")) {
+            return;
+        }
+        if (name.equals("")) {
+            name = defaultName;
+        }
+        fieldCosts.put(name + "." + field, new QueryComplexityInstrumentation.FieldCost(cost, costMultiplier));
+    }
+
+    private void addCacheHint(String name, String defaultName, String field, GraphQLCacheControl hint) {
+        if (hint == null) {
+            return;
+        }
+        if (name.equals("")) {
+            name = defaultName;
+        }
+        cacheHints.put(name + "." + field, hint);
+    }
+
+    private void addFieldTimeout(String name, String defaultName, String field, GraphQLTimeout timeout) {
+        if (timeout == null) {
+            return;
+        }
+        if (name.equals("")) {
+            name = defaultName;
+        }
+        fieldTimeouts.put(name + "." + field, timeout.unit().toNanos(timeout.value()));
+    }
+
     private EnableGraphQL getGraphQLConfig() {
         String[] beanNames = applicationContext.getBeanNamesForAnnotation(EnableGraphQL.class);
         if (beanNames.length == 0) {
@@ -173,58 +504,179 @@ public class GraphQLAutoConfiguration {
         return applicationContext.findAnnotationOnBean(beanNames[0], EnableGraphQL.class);
     }
 
+    /**
+     * A wired bean, which is only created when its instance is first asked for.
+     */
     private class WiringPair<T extends Annotation> {
-        Object instance;
+        Class<?> type;
+        Supplier<Object> instance;
         T ann;
 
-        public WiringPair(Object instance, T ann) {
-            this.instance = instance;
+        public WiringPair(String name, Class<?> type, T ann) {
+            this.type = ClassUtils.getUserClass(type);
+            this.instance = Suppliers.memoize(() -> applicationContext.getBean(name));
             this.ann = ann;
         }
     }
 
+    @SuppressWarnings("unchecked")
     private <T extends Annotation> List<WiringPair<T>> scanWirings(Class<T> ann) {
+        if (wiringIndex != null) {
+            if (indexedWirings == null) {
+                indexedWirings = scanIndexedWirings();
+            }
+            List<WiringPair<T>> results = Lists.newArrayList();
+            for (WiringPair<?> pair : indexedWirings.get(ann)) {
+                results.add((WiringPair<T>) pair);
+            }
+            return results;
+        }
         String[] names = applicationContext.getBeanNamesForAnnotation(ann);
         ArrayList<WiringPair<T>> results = Lists.newArrayList();
         for (String name: names) {
-            Object obj = applicationContext.getBean(name);
+            Class<?> type = applicationContext.getType(name);
+            if (type == null) {
+                continue;
+            }
             T a = applicationContext.findAnnotationOnBean(name, ann);
-            results.add(new WiringPair<T>(obj, a));
+            results.add(new WiringPair<T>(name, type, a));
         }
         return results;
     }
 
-    private RuntimeWiring.Builder registerResolver(RuntimeWiring.Builder builder, Object resolver) throws Exception {
-        for (Method method: resolver.getClass().getDeclaredMethods()) {
-            String name = method.getName();
-            if (name.equals("getUser")) {
-                System.out.println("ppp");
+    /**
+     * One pass over the bean definitions, matching bean classes against the index instead of looking up
+     * every annotation on every bean. Beans missing from the index, e.g. from a jar built without the annotation
+     * processor or compiled by an IDE which does not run it, are still looked up.
+     */
+    private ListMultimap<Class<? extends Annotation>, WiringPair<?>> scanIndexedWirings() {
+        ListMultimap<Class<? extends Annotation>, WiringPair<?>> wirings = ArrayListMultimap.create();
+        Set<String> unindexed = Sets.newTreeSet();
+        for (String name: applicationContext.getBeanDefinitionNames()) {
+            Class<?> type = applicationContext.getType(name);
+            if (type == null) {
+                continue;
             }
-            if (!Modifier.isPublic(method.getModifiers())) {
+            Class<?> userClass = ClassUtils.getUserClass(type);
+            if (wiringIndex.contains(userClass)) {
+                for (Class<? extends Annotation> ann: wiringIndex.getAnnotations(userClass)) {
+                    wirings.put(ann, newWiringPair(name, userClass, AnnotationUtils.findAnnotation(userClass, ann)));
+                }
                 continue;
             }
-            GraphQLQuery query = AnnotationUtils.findAnnotation(method, GraphQLQuery.class);
-            if (query != null) {
-                List<ResolverParameter> resolverParams = checkParameters(method);
-                builder = wireQuery(builder, query.type(), query.field(), dataFetchingEnvironment ->
-                        method.invoke(resolver, buildInvokeParameters(dataFetchingEnvironment, resolverParams)));
+            for (Class<? extends Annotation> ann: WiringIndex.TYPE_ANNOTATIONS.values()) {
+                Annotation found = applicationContext.findAnnotationOnBean(name, ann);
+                if (found != null) {
+                    wirings.put(ann, newWiringPair(name, userClass, found));
+                    unindexed.add(userClass.getName());
+                }
+            }
+        }
+        if (!unindexed.isEmpty()) {
+            log.warn("graphql wirings missing from the index, is the annotation processor run? {}", unindexed);
+        }
+        return wirings;
+    }
+
+    private <T extends Annotation> WiringPair<T> newWiringPair(String name, Class<?> type, T ann) {
+        return new WiringPair<>(name, type, ann);
+    }
+
+    private RuntimeWiring.Builder registerResolver(RuntimeWiring.Builder builder, WiringPair<GraphQLResolver> resolver) throws Exception {
+        if (wiringIndex != null && wiringIndex.contains(resolver.type)) {
+            Map<Method, List<String>> methods = wiringIndex.getFieldMethods(resolver.type);
+            for (Map.Entry<Method, List<String>> method: methods.entrySet()) {
+                builder = registerResolverMethod(builder, resolver.instance, method.getKey(), method.getValue());
+            }
+            return builder;
+        }
+        for (Method method: resolver.type.getDeclaredMethods()) {
+            if (!Modifier.isPublic(method.getModifiers())) {
                 continue;
             }
+            builder = registerResolverMethod(builder, resolver.instance, method, null);
+        }
+        return builder;
+    }
 
-            GraphQLMutation mutation = AnnotationUtils.findAnnotation(method, GraphQLMutation.class);
-            if (mutation != null) {
-                List<ResolverParameter> resolverParams = checkParameters(method);
-                builder = wireQuery(builder, mutation.type(), mutation.field(), dataFetchingEnvironment ->
-                        method.invoke(resolver, buildInvokeParameters(dataFetchingEnvironment, resolverParams)));
+    /**
+     * @param parameterKinds the kind of each parameter from the index, null to look for every annotation
+     */
+    private RuntimeWiring.Builder registerResolverMethod(RuntimeWiring.Builder builder, Supplier<Object> resolver, Method method, List<String> parameterKinds) throws Exception {
+        GraphQLQuery query = AnnotationUtils.findAnnotation(method, GraphQLQuery.class);
+        if (query != null) {
+            addFieldCost(query.type(), "Query", query.field(), query.cost(), query.costMultiplier());
+            addCacheHint(query.type(), "Query", query.field(), AnnotationUtils.findAnnotation(method, GraphQLCacheControl.class));
+            addFieldTimeout(query.type(), "Query", query.field(), AnnotationUtils.findAnnotation(method, GraphQLTimeout.class));
+            GraphQLBatch batch = AnnotationUtils.findAnnotation(method, GraphQLBatch.class);
+            if (batch != null) {
+                String type = query.type().equals("") ? "Query" : query.type();
+                BatchLoaderMethod batchLoader = new BatchLoaderMethod(type + "." + query.field(), resolver, method, batch);
+                batchLoaders.add(batchLoader);
+                return wireQuery(builder, type, query.field(), batchLoader.getDataFetcher());
+            }
+            List<ResolverParameter> resolverParams = checkParameters(method, parameterKinds);
+            ResolverDataFetcher fetcher = new ResolverDataFetcher(resolver, method, resolverParams, getAsyncExecutor(method));
+            GraphQLCacheable cacheable = AnnotationUtils.findAnnotation(method, GraphQLCacheable.class);
+            if (cacheable != null) {
+                String type = query.type().equals("") ? "Query" : query.type();
+                CachingDataFetcher cachingFetcher = new CachingDataFetcher(type + "." + query.field(), fetcher,
+                        applicationContext.getBean(FieldResultCache.class), cacheable);
+                cachingDataFetchers.add(cachingFetcher);
+                return wireQuery(builder, type, query.field(), cachingFetcher);
             }
+            return wireQuery(builder, query.type(), query.field(), fetcher);
+        }
+
+        GraphQLMutation mutation = AnnotationUtils.findAnnotation(method, GraphQLMutation.class);
+        if (mutation != null) {
+            addFieldCost(mutation.type(), "Mutation", mutation.field(), mutation.cost(), mutation.costMultiplier());
+            addFieldTimeout(mutation.type(), "Mutation", mutation.field(), AnnotationUtils.findAnnotation(method, GraphQLTimeout.class));
+            List<ResolverParameter> resolverParams = checkParameters(method, parameterKinds);
+            return wireMutation(builder, mutation.type(), mutation.field(), new ResolverDataFetcher(resolver, method, resolverParams, getAsyncExecutor(method)));
+        }
+
+        GraphQLSubscription subscription = AnnotationUtils.findAnnotation(method, GraphQLSubscription.class);
+        if (subscription != null) {
+            List<ResolverParameter> resolverParams = checkParameters(method, parameterKinds);
+            return wireSubscription(builder, subscription.type(), subscription.field(), new SubscriptionDataFetcher(resolver, method, resolverParams));
         }
         return builder;
     }
 
-    private List<ResolverParameter> checkParameters(Method method) throws Exception {
+    private Executor getAsyncExecutor(Method method) {
+        GraphQLAsync async = AnnotationUtils.findAnnotation(method, GraphQLAsync.class);
+        if (async == null) {
+            return null;
+        }
+        if (!async.value().equals("")) {
+            return applicationContext.getBean(async.value(), Executor.class);
+        }
+        if (asyncExecutor == null) {
+            asyncExecutor = AsyncExecutors.create(applicationContext.getEnvironment());
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Converts input objects into the types of @GraphQLArgument parameters: the application's ObjectMapper,
+     * for its modules, or one ignoring the input fields a class does not have.
+     */
+    private ObjectMapper getArgumentMapper() {
+        if (argumentMapper == null) {
+            argumentMapper = applicationContext.getBeanProvider(ObjectMapper.class).getIfUnique(() ->
+                    new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+        }
+        return argumentMapper;
+    }
+
+    private List<ResolverParameter> checkParameters(Method method, List<String> kinds) throws Exception {
         List<ResolverParameter> rp = Lists.newArrayList();
-        for (Parameter p: method.getParameters()) {
-            GraphQLArgument arg = AnnotationUtils.findAnnotation(p, GraphQLArgument.class);
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter p = parameters[i];
+            String kind = kinds != null ? kinds.get(i) : null;
+            GraphQLArgument arg = findAnnotation(p, kind, GraphQLIndexProcessor.ARGUMENT, GraphQLArgument.class);
             if (arg != null) {
                 ArgumentParameter a = new ArgumentParameter();
                 String name = arg.name();
@@ -233,14 +685,15 @@ public class GraphQLAutoConfiguration {
                 }
                 if (name.equals(""))
                     throw new RuntimeException("missing argument name on @GraphQLArgument");
-                a.setName(arg.name());
+                a.setName(name);
+                a.setConverter(ArgumentConverter.of(p.getParameterizedType(), getArgumentMapper()));
                 a.setParameter(p);
                 a.setAnnotation(arg);
                 rp.add(a);
                 continue;
             }
 
-            GraphQLSource src = AnnotationUtils.findAnnotation(p, GraphQLSource.class);
+            GraphQLSource src = findAnnotation(p, kind, GraphQLIndexProcessor.SOURCE, GraphQLSource.class);
             if (src != null) {
                 SourceParameter s = new SourceParameter();
                 s.setAnnotation(src);
@@ -249,7 +702,7 @@ public class GraphQLAutoConfiguration {
                 continue;
             }
 
-            GraphQLPath path = AnnotationUtils.findAnnotation(p, GraphQLPath.class);
+            GraphQLPath path = findAnnotation(p, kind, GraphQLIndexProcessor.PATH, GraphQLPath.class);
             if (path != null) {
                 PathParameter pth = new PathParameter();
                 pth.setParameter(p);
@@ -264,7 +717,7 @@ public class GraphQLAutoConfiguration {
                 continue;
             }
 
-            GraphQLContext ctx = AnnotationUtils.findAnnotation(p, GraphQLContext.class);
+            GraphQLContext ctx = findAnnotation(p, kind, GraphQLIndexProcessor.CONTEXT, GraphQLContext.class);
             if (ctx != null) {
                 ContextParameter c = new ContextParameter();
                 c.setName(ctx.key());
@@ -274,7 +727,7 @@ public class GraphQLAutoConfiguration {
                 continue;
             }
 
-            GraphQLRequireAnyOfFields any = AnnotationUtils.findAnnotation(p, GraphQLRequireAnyOfFields.class);
+            GraphQLRequireAnyOfFields any = findAnnotation(p, kind, GraphQLIndexProcessor.REQUIRE_ANY_OF_FIELDS, GraphQLRequireAnyOfFields.class);
             if (any != null) {
                 if (!p.getType().equals(Boolean.class) && !p.getType().equals(boolean.class)) {
                     throw new RuntimeException("illegal argument type for @GraphQLRequireAnyOfFields, should be a Boolean");
@@ -286,18 +739,30 @@ public class GraphQLAutoConfiguration {
                 continue;
             }
 
-            GraphQLRequireAllOfFields all = AnnotationUtils.findAnnotation(p, GraphQLRequireAllOfFields.class);
+            GraphQLRequireAllOfFields all = findAnnotation(p, kind, GraphQLIndexProcessor.REQUIRE_ALL_OF_FIELDS, GraphQLRequireAllOfFields.class);
             if (all != null) {
                 if (!p.getType().equals(Boolean.class) && !p.getType().equals(boolean.class)) {
                     throw new RuntimeException("illegal argument type for @GraphQLRequireAllOfFields, should be a Boolean");
                 }
-                RequireAllOfFieldsParameter a = new RequireAllOfFieldsParameter(any.value());
+                RequireAllOfFieldsParameter a = new RequireAllOfFieldsParameter(all.value());
                 a.setParameter(p);
                 a.setAnnotation(all);
                 rp.add(a);
                 continue;
             }
 
+            GraphQLSelectedFields selected = findAnnotation(p, kind, GraphQLIndexProcessor.SELECTED_FIELDS, GraphQLSelectedFields.class);
+            if (selected != null) {
+                if (!p.getType().isAssignableFrom(Set.class) || p.getType().equals(Object.class)) {
+                    throw new RuntimeException("illegal argument type for @GraphQLSelectedFields, should be a Set<String>");
+                }
+                SelectedFieldsParameter a = new SelectedFieldsParameter(selected.columns());
+                a.setParameter(p);
+                a.setAnnotation(selected);
+                rp.add(a);
+                continue;
+            }
+
             if (p.getType().equals(DataFetchingEnvironment.class)) {
                 EnvParameter e = new EnvParameter();
                 e.setParameter(p);
@@ -305,50 +770,54 @@ public class GraphQLAutoConfiguration {
                 continue;
             }
 
+            if (p.getType().equals(GraphQLDeadline.class)) {
+                DeadlineParameter d = new DeadlineParameter();
+                d.setParameter(p);
+                rp.add(d);
+                continue;
+            }
+
             throw new IllegalArgumentException("unsupported argument");
         }
 
         return rp;
     }
 
+    /**
+     * @param indexedKind the kind of the parameter from the index, null if unknown
+     */
+    private static <A extends Annotation> A findAnnotation(Parameter p, String indexedKind, String kind, Class<A> type) {
+        if (indexedKind != null && !indexedKind.equals(kind)) {
+            return null;
+        }
+        return AnnotationUtils.findAnnotation(p, type);
+    }
 
-    private Object[] buildInvokeParameters(DataFetchingEnvironment dataFetchingEnvironment, List<ResolverParameter> parameters) {
-        List<Object> arguments = Lists.newArrayList();
-        for (ResolverParameter p : parameters) {
-            if (p instanceof ArgumentParameter) {
-                Object a = dataFetchingEnvironment.getArgument(((ArgumentParameter) p).getName());
-                arguments.add(a);
-            } else if (p instanceof SourceParameter) {
-                arguments.add(dataFetchingEnvironment.getSource());
-            } else if (p instanceof EnvParameter) {
-                arguments.add(dataFetchingEnvironment);
-            } else if (p instanceof ContextParameter) {
-                Object context = dataFetchingEnvironment.getContext();
-                ContextParameter ctx = (ContextParameter) p;
-                if (ctx.hasContextKey()) {
-                    arguments.add(context);
-                } else {
-                    if (context instanceof Map) {
-                        arguments.add(((Map) context).get(ctx.getName()));
-                    }
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class ActuatorConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public GraphQLSchemaEndpoint graphQLSchemaEndpoint(GraphQLSchemaRegistry schemaRegistry) {
+            return new GraphQLSchemaEndpoint(schemaRegistry);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean(name = "graphQLWarmUpHealthIndicator")
+        public HealthIndicator graphQLWarmUpHealthIndicator(GraphQLWarmUp warmUp) {
+            return () -> {
+                CompletableFuture<Void> completion = warmUp.getCompletion();
+                if (!completion.isDone()) {
+                    return Health.outOfService().build();
                 }
-            } else if (p instanceof PathParameter) {
-                ExecutionPath path = dataFetchingEnvironment.getExecutionStepInfo().getPath();
-                if (((PathParameter) p).isAsLevel()) {
-                    arguments.add(path.getLevel());
-                } else {
-                    arguments.add(path.toString());
+                try {
+                    completion.join();
+                    return Health.up().build();
+                } catch (CompletionException e) {
+                    return Health.down().withException(e.getCause()).build();
                 }
-            } else if (p instanceof RequireAnyOfFieldsParameter) {
-                RequireAnyOfFieldsParameter any = (RequireAnyOfFieldsParameter) p;
-                arguments.add(dataFetchingEnvironment.getSelectionSet().containsAnyOf(any.getGlob(), any.getGlobs()));
-            } else if (p instanceof RequireAllOfFieldsParameter) {
-                RequireAllOfFieldsParameter all = (RequireAllOfFieldsParameter) p;
-                arguments.add(dataFetchingEnvironment.getSelectionSet().containsAllOf(all.getGlob(), all.getGlobs()));
-            } else {
-                throw new RuntimeException("unknown argument");
-            }
+            };
         }
-        return arguments.toArray();
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.karfield.graphql.support;
+
+import graphql.PublicApi;
+import graphql.execution.ExecutionId;
+import graphql.execution.ExecutionPath;
+import graphql.schema.DataFetchingEnvironment;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time by which an operation, or one of its fields with a {@link com.karfield.graphql.annotations.GraphQLTimeout},
+ * should be resolved. Once it passes, pending fields resolve to null with an error, while the futures they returned
+ * may still be running (they can be shared with other requests), so a resolver should bound its own downstream calls with {@link #getRemaining(TimeUnit)} rather than keep working
+ * for nothing.
+ * <p>
+ * Resolver methods get it with a parameter of this type, data fetchers with {@link #of(DataFetchingEnvironment)}.
+ */
+@PublicApi
+public final class GraphQLDeadline {
+
+    /**
+     * No deadline.
+     */
+    public static final GraphQLDeadline NONE = new GraphQLDeadline(0, false);
+
+    private static final Map<ExecutionId, Execution> EXECUTIONS = new ConcurrentHashMap<>();
+
+    private final long nanoTime;
+    private final boolean bounded;
+
+    private GraphQLDeadline(long nanoTime, boolean bounded) {
+        this.nanoTime = nanoTime;
+        this.bounded = bounded;
+    }
+
+    public static GraphQLDeadline after(long timeout, TimeUnit unit) {
+        return new GraphQLDeadline(System.nanoTime() + unit.toNanos(timeout), true);
+    }
+
+    /**
+     * @return the deadline of the field being fetched, the one of its operation if the field has none,
+     * {@link #NONE} if neither has one
+     */
+    public static GraphQLDeadline of(DataFetchingEnvironment environment) {
+        Execution execution = EXECUTIONS.get(environment.getExecutionId());
+        if (execution == null) {
+            return NONE;
+        }
+        GraphQLDeadline field = execution.fields.get(environment.getExecutionStepInfo().getPath());
+        return field != null ? field : execution.deadline;
+    }
+
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    public boolean isExpired() {
+        return bounded && System.nanoTime() - nanoTime >= 0;
+    }
+
+    /**
+     * @return the time left, 0 once expired, Long.MAX_VALUE without deadline
+     */
+    public long getRemaining(TimeUnit unit) {
+        if (!bounded) {
+            return Long.MAX_VALUE;
+        }
+        return unit.convert(Math.max(0, nanoTime - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the earliest of both deadlines
+     */
+    public GraphQLDeadline min(GraphQLDeadline other) {
+        if (!other.bounded) {
+            return this;
+        }
+        if (!bounded) {
+            return other;
+        }
+        return other.nanoTime - nanoTime < 0 ? other : this;
+    }
+
+    GraphQLDeadline plus(long delay, TimeUnit unit) {
+        return bounded ? new GraphQLDeadline(nanoTime + unit.toNanos(delay), true) : this;
+    }
+
+    /**
+     * The deadline of an operation, until it completes.
+     */
+    static void register(ExecutionId executionId, GraphQLDeadline deadline) {
+        EXECUTIONS.put(executionId, new Execution(deadline));
+    }
+
+    static void unregister(ExecutionId executionId) {
+        EXECUTIONS.remove(executionId);
+    }
+
+    static GraphQLDeadline get(ExecutionId executionId) {
+        Execution execution = EXECUTIONS.get(executionId);
+        return execution != null ? execution.deadline : NONE;
+    }
+
+    /**
+     * The deadline of a field with a timeout, while it is fetched.
+     */
+    static void enter(ExecutionId executionId, ExecutionPath path, GraphQLDeadline deadline) {
+        EXECUTIONS.computeIfAbsent(executionId, id -> new Execution(NONE)).fields.put(path, deadline);
+    }
+
+    static void exit(ExecutionId executionId, ExecutionPath path) {
+        Execution execution = EXECUTIONS.get(executionId);
+        if (execution != null) {
+            execution.fields.remove(path);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return bounded ? "GraphQLDeadline{remaining=" + getRemaining(TimeUnit.MILLISECONDS) + "ms}" : "GraphQLDeadline{none}";
+    }
+
+    private static final class Execution {
+        private final GraphQLDeadline deadline;
+        private final Map<ExecutionPath, GraphQLDeadline> fields = new ConcurrentHashMap<>();
+
+        private Execution(GraphQLDeadline deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
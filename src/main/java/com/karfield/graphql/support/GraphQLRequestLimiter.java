@@ -0,0 +1,167 @@
+package com.karfield.graphql.support;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import graphql.ExecutionResult;
+import org.springframework.core.env.Environment;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Admission control of the operations, with graphql.limiter.enabled=true: an adaptive {@link ConcurrencyLimiter}
+ * in front of every invocation, which keeps the server at the concurrency it sustains instead of letting every
+ * request in and collapsing under a spike. Rejected operations fail fast with an {@link OverloadedException}.
+ * <ul>
+ * <li>graphql.limiter.initial-limit, min-limit and max-limit (20, 1, 200): bounds of the adaptive limit</li>
+ * <li>graphql.limiter.queue-size (100): operations waiting for a permit beyond the limit</li>
+ * <li>graphql.limiter.max-wait-ms (500): how long they wait, 0 rejects them right away</li>
+ * <li>graphql.limiter.bulkhead: "operation" or "header:x-client-id" to give each operation name or each value of an
+ * x-header passed in the context its own limit too, at most graphql.limiter.bulkhead-max-limit (half the max limit),
+ * so a single operation or client can not take every permit</li>
+ * </ul>
+ * A failed invocation counts as a drop and shrinks the limit.
+ */
+public class GraphQLRequestLimiter {
+
+    private static final String OPERATION = "operation";
+    private static final String HEADER = "header:";
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int queueSize;
+    private final long maxWaitMillis;
+    private final int bulkheadMaxLimit;
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+    private final ConcurrencyLimiter global;
+    private final String bulkhead;
+    private final Cache<String, ConcurrencyLimiter> partitions;
+    private volatile BiConsumer<String, ConcurrencyLimiter> partitionListener = (key, limiter) -> {
+    };
+    private volatile BiConsumer<String, ConcurrencyLimiter> partitionRemovalListener = (key, limiter) -> {
+    };
+
+    public GraphQLRequestLimiter(Environment environment, Executor executor) {
+        this.executor = executor;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "graphql-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.initialLimit = environment.getProperty("graphql.limiter.initial-limit", Integer.class, 20);
+        this.minLimit = environment.getProperty("graphql.limiter.min-limit", Integer.class, 1);
+        this.queueSize = environment.getProperty("graphql.limiter.queue-size", Integer.class, 100);
+        this.maxWaitMillis = environment.getProperty("graphql.limiter.max-wait-ms", Long.class, 500L);
+        int maxLimit = environment.getProperty("graphql.limiter.max-limit", Integer.class, 200);
+        this.bulkheadMaxLimit = environment.getProperty("graphql.limiter.bulkhead-max-limit", Integer.class, Math.max(1, maxLimit / 2));
+        this.global = newLimiter(maxLimit);
+
+        String bulkhead = environment.getProperty("graphql.limiter.bulkhead", "");
+        if (bulkhead.startsWith(HEADER)) {
+            bulkhead = HEADER + bulkhead.substring(HEADER.length()).toLowerCase();
+        } else if (!bulkhead.equals(OPERATION) && !bulkhead.equals("")) {
+            throw new IllegalArgumentException("illegal graphql.limiter.bulkhead " + bulkhead + ", should be operation or header:<x-header>");
+        }
+        this.bulkhead = bulkhead;
+        this.partitions = bulkhead.equals("") ? null : CacheBuilder.newBuilder()
+                .maximumSize(1000)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .removalListener((RemovalNotification<String, ConcurrencyLimiter> notification) ->
+                        partitionRemovalListener.accept(notification.getKey(), notification.getValue()))
+                .build();
+    }
+
+    private ConcurrencyLimiter newLimiter(int maxLimit) {
+        return new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, queueSize, maxWaitMillis, TimeUnit.MILLISECONDS, timer, executor);
+    }
+
+    public ConcurrencyLimiter getGlobal() {
+        return global;
+    }
+
+    /**
+     * Called with the limiter of every bulkhead partition as it is created, e.g. to register its metrics.
+     */
+    public void setPartitionListener(BiConsumer<String, ConcurrencyLimiter> partitionListener) {
+        this.partitionListener = partitionListener;
+    }
+
+    /**
+     * Called with the limiter of every bulkhead partition evicted after 10 minutes unused or beyond 1000 partitions,
+     * e.g. to remove its metrics.
+     */
+    public void setPartitionRemovalListener(BiConsumer<String, ConcurrencyLimiter> partitionRemovalListener) {
+        this.partitionRemovalListener = partitionRemovalListener;
+    }
+
+    /**
+     * Runs the invocation once the operation is admitted.
+     *
+     * @param context the context of the operation, a map of the x-headers by default
+     */
+    public CompletableFuture<ExecutionResult> execute(String operationName, Object context,
+                                                      Supplier<CompletableFuture<ExecutionResult>> invocation) {
+        ConcurrencyLimiter partition = getPartition(operationName, context);
+        if (partition == null) {
+            return execute(global, invocation);
+        }
+        return execute(partition, () -> execute(global, invocation));
+    }
+
+    private static CompletableFuture<ExecutionResult> execute(ConcurrencyLimiter limiter,
+                                                              Supplier<CompletableFuture<ExecutionResult>> invocation) {
+        return limiter.acquire().thenCompose(permit -> {
+            CompletableFuture<ExecutionResult> result;
+            try {
+                result = invocation.get();
+            } catch (RuntimeException e) {
+                permit.release(!(e instanceof OverloadedException));
+                throw e;
+            }
+            return result.whenComplete((r, t) -> permit.release(t != null && !(unwrap(t) instanceof OverloadedException)));
+        });
+    }
+
+    private ConcurrencyLimiter getPartition(String operationName, Object context) {
+        if (partitions == null) {
+            return null;
+        }
+        Object key;
+        if (bulkhead.equals(OPERATION)) {
+            key = operationName;
+        } else {
+            key = context instanceof Map ? ((Map<?, ?>) context).get(bulkhead.substring(HEADER.length())) : null;
+        }
+        String partitionKey = key != null ? key.toString() : "anonymous";
+        try {
+            return partitions.get(partitionKey, () -> {
+                ConcurrencyLimiter limiter = newLimiter(bulkheadMaxLimit);
+                partitionListener.accept(partitionKey, limiter);
+                return limiter;
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
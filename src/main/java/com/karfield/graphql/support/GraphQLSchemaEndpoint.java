@@ -0,0 +1,33 @@
+package com.karfield.graphql.support;
+
+import com.google.common.collect.ImmutableMap;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.Map;
+
+/**
+ * The actuator endpoint "graphqlschema": GET returns the version of the current schema,
+ * POST reloads it from the schema files.
+ * Like any actuator endpoint it has to be exposed, e.g. management.endpoints.web.exposure.include=graphqlschema.
+ */
+@Endpoint(id = "graphqlschema")
+public class GraphQLSchemaEndpoint {
+
+    private final GraphQLSchemaRegistry registry;
+
+    public GraphQLSchemaEndpoint(GraphQLSchemaRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> version() {
+        return ImmutableMap.of("version", registry.getVersion());
+    }
+
+    @WriteOperation
+    public Map<String, Object> reload() throws Exception {
+        return ImmutableMap.of("version", registry.reload());
+    }
+}
@@ -0,0 +1,57 @@
+package com.karfield.graphql.support;
+
+import graphql.GraphQL;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Holds the current {@link GraphQL} instance, which {@link #reload()} replaces by one built from the schema files
+ * as they are now.
+ * <p>
+ * The new instance is built while requests keep running on the current one, then swapped in atomically:
+ * a request runs on the instance it started with, and the next ones on the new instance.
+ * If the schema does not build, the current instance stays in place.
+ */
+@Slf4j
+public class GraphQLSchemaRegistry {
+
+    /**
+     * Builds the {@link GraphQL} instance of a version of the schema.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        GraphQL load(long version) throws Exception;
+    }
+
+    private final Loader loader;
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile GraphQL graphQL;
+    private volatile long version;
+
+    public GraphQLSchemaRegistry(Loader loader, ApplicationEventPublisher eventPublisher) throws Exception {
+        this.loader = loader;
+        this.eventPublisher = eventPublisher;
+        this.graphQL = loader.load(0);
+    }
+
+    public GraphQL getGraphQL() {
+        return graphQL;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the version of the new schema
+     */
+    public synchronized long reload() throws Exception {
+        long next = version + 1;
+        GraphQL reloaded = loader.load(next);
+        graphQL = reloaded;
+        version = next;
+        log.info("graphql schema reloaded, version {}", next);
+        eventPublisher.publishEvent(new GraphQLSchemaReloadedEvent(this, next));
+        return next;
+    }
+}
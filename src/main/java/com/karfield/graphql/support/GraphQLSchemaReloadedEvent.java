@@ -0,0 +1,23 @@
+package com.karfield.graphql.support;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published once a {@link GraphQLSchemaRegistry} swapped in a new schema, caches of results computed
+ * against the previous one should be dropped.
+ */
+public class GraphQLSchemaReloadedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long version;
+
+    public GraphQLSchemaReloadedEvent(GraphQLSchemaRegistry source, long version) {
+        super(source);
+        this.version = version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,149 @@
+package com.karfield.graphql.support;
+
+import com.google.common.collect.ImmutableMap;
+import graphql.ErrorType;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.ExecutionId;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Deadlines of the operations, and of the fields with a {@link com.karfield.graphql.annotations.GraphQLTimeout}.
+ * <ul>
+ * <li>graphql.timeout.request-ms (0, none): the time an operation may take</li>
+ * <li>graphql.timeout.header: a request header, e.g. "x-request-timeout", with which clients set the time in ms
+ * they wait for the response, it can only shorten the request-ms</li>
+ * <li>graphql.timeout.grace-ms (100): once the deadline passed, the pending fields resolve to null with a TIMEOUT
+ * error; if the operation still did not complete after this grace (a resolver blocks a pool thread), its response
+ * is a single TIMEOUT error. A resolver blocking the request thread can not be bounded at all</li>
+ * </ul>
+ */
+public class GraphQLTimeouts {
+
+    public static final String TIMEOUT = "TIMEOUT";
+
+    private final long requestTimeoutMillis;
+    private final String header;
+    private final long graceMillis;
+    private final ScheduledExecutorService timer;
+    private final Executor executor;
+
+    /**
+     * @param executor completes the timed out futures, the execution goes on on its thread
+     */
+    public GraphQLTimeouts(long requestTimeoutMillis, String header, long graceMillis, Executor executor) {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.header = header;
+        this.graceMillis = graceMillis;
+        this.executor = executor;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "graphql-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the request header with the timeout of the client, empty if there is none
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * @param headerValue the value of the {@link #getHeader()}, may be null
+     */
+    public GraphQLDeadline getRequestDeadline(String headerValue) {
+        long timeout = requestTimeoutMillis;
+        if (headerValue != null && !header.isEmpty()) {
+            try {
+                long requested = Long.parseLong(headerValue.trim());
+                if (requested > 0) {
+                    timeout = timeout > 0 ? Math.min(timeout, requested) : requested;
+                }
+            } catch (NumberFormatException e) {
+                // ignored like a missing header
+            }
+        }
+        return timeout > 0 ? GraphQLDeadline.after(timeout, TimeUnit.MILLISECONDS) : GraphQLDeadline.NONE;
+    }
+
+    /**
+     * Executes the operation within the deadline, which its fields see through its execution id.
+     */
+    public CompletableFuture<ExecutionResult> execute(GraphQLDeadline deadline, CompletableFuture<ExecutionInput> input,
+                                                      Function<ExecutionInput, CompletableFuture<ExecutionResult>> execution) {
+        if (!deadline.isBounded()) {
+            return input.thenCompose(execution);
+        }
+        return input.thenCompose(executionInput -> {
+            ExecutionInput identified = executionInput.getExecutionId() != null ? executionInput
+                    : executionInput.transform(builder -> builder.executionId(ExecutionId.generate()));
+            ExecutionId executionId = identified.getExecutionId();
+            GraphQLDeadline.register(executionId, deadline);
+            CompletableFuture<ExecutionResult> result;
+            try {
+                result = execution.apply(identified);
+            } catch (RuntimeException e) {
+                GraphQLDeadline.unregister(executionId);
+                throw e;
+            }
+            result.whenComplete((r, t) -> GraphQLDeadline.unregister(executionId));
+            return within(result, deadline.plus(graceMillis, TimeUnit.MILLISECONDS), () ->
+                    new ExecutionResultImpl(GraphqlErrorBuilder.newError()
+                            .message("operation timed out")
+                            .errorType(ErrorType.ExecutionAborted)
+                            .extensions(ImmutableMap.of("code", TIMEOUT))
+                            .build()));
+        });
+    }
+
+    /**
+     * @return the future, or once the deadline passed the timeout value. The future itself is left alone,
+     * it may be shared with other requests (a single flight, a data loader)
+     */
+    public <T> CompletableFuture<T> within(CompletableFuture<T> future, GraphQLDeadline deadline, Supplier<T> timeout) {
+        return within(future, deadline, timeout, f -> {
+        });
+    }
+
+    /**
+     * @param onTimeout called with the future once it timed out, e.g. to cancel it if nothing else waits for it
+     */
+    public <T> CompletableFuture<T> within(CompletableFuture<T> future, GraphQLDeadline deadline, Supplier<T> timeout,
+                                           Consumer<CompletableFuture<T>> onTimeout) {
+        if (future.isDone() || !deadline.isBounded()) {
+            return future;
+        }
+        CompletableFuture<T> bounded = new CompletableFuture<>();
+        ScheduledFuture<?> timer = this.timer.schedule(() -> executor.execute(() -> {
+            if (!bounded.isDone() && bounded.complete(timeout.get())) {
+                onTimeout.accept(future);
+            }
+        }), deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        future.whenComplete((value, t) -> {
+            timer.cancel(false);
+            if (t != null) {
+                bounded.completeExceptionally(t);
+            } else {
+                bounded.complete(value);
+            }
+        });
+        return bounded;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,96 @@
+package com.karfield.graphql.support;
+
+import graphql.parser.Parser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Creates the lazy resolver beans on a background thread once the context is refreshed, with graphql.warm-up=true,
+ * so the first requests do not pay for it. A first query is parsed as well, to warm up the parser.
+ * <p>
+ * {@link #isReady()} turns true once it is done, right away without warm-up. With the actuator on the classpath
+ * the "graphQLWarmUp" health is OUT_OF_SERVICE until then, which fails a readiness probe on /actuator/health.
+ */
+@Slf4j
+public class GraphQLWarmUp implements SmartLifecycle {
+
+    private final List<Supplier<Object>> beans;
+    private final boolean enabled;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile Thread thread;
+
+    public GraphQLWarmUp(List<Supplier<Object>> beans, boolean enabled) {
+        this.beans = beans;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return true once the warm-up completed, even if some beans failed to be created or it was interrupted
+     */
+    public boolean isReady() {
+        return completion.isDone();
+    }
+
+    /**
+     * @return completes once the warm-up is done, exceptionally with the first failure or if it was interrupted
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            completion.complete(null);
+            return;
+        }
+        thread = new Thread(this::warmUp, "graphql-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread t = thread;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        Thread t = thread;
+        return t != null && t.isAlive();
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        Exception failure = null;
+        for (Supplier<Object> bean : beans) {
+            if (Thread.currentThread().isInterrupted()) {
+                // stopped, e.g. by a shutdown: waiters are released rather than left hanging
+                completion.completeExceptionally(new InterruptedException("graphql warm-up interrupted"));
+                return;
+            }
+            try {
+                bean.get();
+            } catch (Exception e) {
+                log.error("graphql warm-up failed to create a resolver", e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        new Parser().parseDocument("query WarmUp($id: ID) { node(id: $id) { ... on Node { id } } }");
+        log.info("graphql warm-up of {} resolvers done in {} ms", beans.size(), (System.nanoTime() - start) / 1000000);
+        if (failure != null) {
+            completion.completeExceptionally(failure);
+        } else {
+            completion.complete(null);
+        }
+    }
+}
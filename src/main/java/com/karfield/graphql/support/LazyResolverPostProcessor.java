@@ -0,0 +1,80 @@
+package com.karfield.graphql.support;
+
+import com.karfield.graphql.annotations.GraphQLMutation;
+import com.karfield.graphql.annotations.GraphQLQuery;
+import com.karfield.graphql.annotations.GraphQLResolver;
+import com.karfield.graphql.annotations.GraphQLSubscription;
+import graphql.Internal;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.util.ClassUtils;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Marks the bean definitions of resolvers and data fetchers lazy, unless graphql.lazy-resolvers is false:
+ * the wiring creates them, and their dependencies, on their first fetch.
+ * Scalars and type resolvers are needed to build the schema and stay eager.
+ */
+@Internal
+class LazyResolverPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private static final List<Class<? extends Annotation>> LAZY_ANNOTATIONS = Arrays.asList(
+            GraphQLResolver.class, GraphQLQuery.class, GraphQLMutation.class, GraphQLSubscription.class);
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        if (!environment.getProperty("graphql.lazy-resolvers", Boolean.class, true)) {
+            return;
+        }
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (definition.isLazyInit() || !definition.isSingleton() || definition.isAbstract()) {
+                continue;
+            }
+            String className = getBeanClassName(definition);
+            if (className == null || !ClassUtils.isPresent(className, beanFactory.getBeanClassLoader())) {
+                continue;
+            }
+            Class<?> beanClass = ClassUtils.resolveClassName(className, beanFactory.getBeanClassLoader());
+            for (Class<? extends Annotation> annotation : LAZY_ANNOTATIONS) {
+                if (AnnotationUtils.findAnnotation(beanClass, annotation) != null) {
+                    definition.setLazyInit(true);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * The class of a scanned bean, or the declared return type of a @Bean method.
+     */
+    private static String getBeanClassName(BeanDefinition definition) {
+        if (definition.getFactoryMethodName() == null) {
+            return definition.getBeanClassName();
+        }
+        if (definition instanceof AnnotatedBeanDefinition) {
+            MethodMetadata factoryMethod = ((AnnotatedBeanDefinition) definition).getFactoryMethodMetadata();
+            if (factoryMethod != null) {
+                return factoryMethod.getReturnTypeName();
+            }
+        }
+        return null;
+    }
+}
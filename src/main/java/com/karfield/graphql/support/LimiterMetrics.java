@@ -0,0 +1,61 @@
+package com.karfield.graphql.support;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registers the gauges graphql.limiter.limit, graphql.limiter.in-flight and graphql.limiter.queued, and the counter
+ * graphql.limiter.rejections, per partition of the {@link GraphQLRequestLimiter}: tagged partition=global, or
+ * partition=bulkhead with the key of the bulkhead as the bulkhead tag, so no client value can name the global meters.
+ * The meters of a bulkhead partition are removed with it, so client values do not pile up in the registry.
+ */
+final class LimiterMetrics {
+
+    private LimiterMetrics() {
+    }
+
+    /**
+     * Only called once micrometer is known to be on the classpath, does nothing without a {@link MeterRegistry} bean.
+     */
+    static void bind(ApplicationContext applicationContext, GraphQLRequestLimiter requestLimiter) {
+        MeterRegistry registry = applicationContext.getBeanProvider(MeterRegistry.class).getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        bind(registry, Tags.of("partition", "global", "bulkhead", "none"), requestLimiter.getGlobal());
+        Map<ConcurrencyLimiter, List<Meter>> partitions = new ConcurrentHashMap<>();
+        requestLimiter.setPartitionListener((key, limiter) -> partitions.put(limiter,
+                bind(registry, Tags.of("partition", "bulkhead", "bulkhead", key), limiter)));
+        requestLimiter.setPartitionRemovalListener((key, limiter) -> {
+            List<Meter> meters = partitions.remove(limiter);
+            if (meters != null) {
+                meters.forEach(registry::remove);
+            }
+        });
+    }
+
+    private static List<Meter> bind(MeterRegistry registry, Tags tags, ConcurrencyLimiter limiter) {
+        return Arrays.asList(
+                Gauge.builder("graphql.limiter.limit", limiter, ConcurrencyLimiter::getLimit)
+                        .tags(tags)
+                        .register(registry),
+                Gauge.builder("graphql.limiter.in-flight", limiter, ConcurrencyLimiter::getInFlight)
+                        .tags(tags)
+                        .register(registry),
+                Gauge.builder("graphql.limiter.queued", limiter, ConcurrencyLimiter::getQueued)
+                        .tags(tags)
+                        .register(registry),
+                FunctionCounter.builder("graphql.limiter.rejections", limiter, ConcurrencyLimiter::getRejected)
+                        .tags(tags)
+                        .register(registry));
+    }
+}
@@ -0,0 +1,93 @@
+package com.karfield.graphql.support;
+
+import graphql.Internal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cglib.reflect.FastClass;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+/**
+ * Calls a method of a wired bean without going through {@link Method#invoke}.
+ * <p>
+ * The call goes through a {@link FastClass} generated once per bean class at startup,
+ * which dispatches on a method index to a direct call.
+ * Where cglib can not define classes a spreading {@link MethodHandle} bound to the bean is used instead.
+ * Exceptions thrown by the method are rethrown unwrapped.
+ * <p>
+ * The bean is taken from a supplier on every call, so a lazy bean is only created by the first call.
+ */
+@Slf4j
+@Internal
+public final class MethodInvoker {
+
+    private final Supplier<?> target;
+    private final Method method;
+    private final FastClass fastClass;
+    private final int index;
+    private final MethodHandle handle;
+
+    public MethodInvoker(Object target, Method method) throws IllegalAccessException {
+        this(() -> target, method);
+    }
+
+    public MethodInvoker(Supplier<?> target, Method method) throws IllegalAccessException {
+        this.target = target;
+        this.method = method;
+
+        FastClass fc = null;
+        int idx = -1;
+        try {
+            fc = FastClass.create(method.getDeclaringClass());
+            idx = fc.getIndex(method.getName(), method.getParameterTypes());
+        } catch (Throwable e) {
+            // cglib can not define classes on every runtime, e.g. JDK 16+ with spring 5.1
+            log.debug("cannot generate fast class for " + method + ", using a method handle", e);
+        }
+        if (idx >= 0) {
+            this.fastClass = fc;
+            this.index = idx;
+            this.handle = null;
+        } else {
+            method.setAccessible(true);
+            this.fastClass = null;
+            this.index = -1;
+            this.handle = MethodHandles.lookup().unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        }
+    }
+
+    public Object invoke(Object[] args) throws Exception {
+        if (fastClass == null) {
+            try {
+                return (Object) handle.invokeExact(target.get(), args);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        }
+        try {
+            return fastClass.invoke(index, target.get(), args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getTargetException();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    public Object getTarget() {
+        return target.get();
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+}
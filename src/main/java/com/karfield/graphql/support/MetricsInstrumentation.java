@@ -0,0 +1,155 @@
+package com.karfield.graphql.support;
+
+import graphql.ExecutionResult;
+import graphql.execution.ExecutionStepInfo;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.language.Document;
+import graphql.validation.ValidationError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records Micrometer meters for every operation:
+ * <ul>
+ * <li>graphql.request: a timer per operation name and outcome, i.e. throughput and latency. The name is the one of
+ * the executed operation, "anonymous" if it has none, and "invalid" for a document which does not parse or validate
+ * or has no such operation, so clients can not create meters by sending made up names</li>
+ * <li>graphql.request.phase: a timer per phase (parse, validate, execute), parse and validate are only recorded
+ * when the document was not cached</li>
+ * <li>graphql.field: a latency histogram per field coordinates ("Type.field") and outcome, for non trivial data
+ * fetchers only, sampled at the configured rate</li>
+ * <li>graphql.field.errors: a counter per field coordinates of the fetches which failed</li>
+ * </ul>
+ */
+@Slf4j
+public class MetricsInstrumentation extends SimpleInstrumentation {
+
+    private final MeterRegistry registry;
+    private final double fieldSampleRate;
+    private final Map<String, FieldMeters> fieldMeters = new ConcurrentHashMap<>();
+
+    public MetricsInstrumentation(MeterRegistry registry, double fieldSampleRate) {
+        this.registry = registry;
+        this.fieldSampleRate = fieldSampleRate;
+    }
+
+    /**
+     * Only called once micrometer is known to be on the classpath.
+     *
+     * @return the instrumentation, or null if there is no {@link MeterRegistry} bean
+     */
+    static Instrumentation create(ApplicationContext applicationContext, double fieldSampleRate) {
+        MeterRegistry registry = applicationContext.getBeanProvider(MeterRegistry.class).getIfAvailable();
+        if (registry == null) {
+            log.warn("graphql metrics are enabled but there is no MeterRegistry bean");
+            return null;
+        }
+        return new MetricsInstrumentation(registry, fieldSampleRate);
+    }
+
+    @Override
+    public InstrumentationState createState() {
+        return new OperationState();
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecution(InstrumentationExecutionParameters parameters) {
+        long start = System.nanoTime();
+        OperationState state = parameters.getInstrumentationState();
+        return SimpleInstrumentationContext.whenCompleted((result, t) -> Timer.builder("graphql.request")
+                .tag("operation", state.operation != null ? state.operation : "invalid")
+                .tag("outcome", t == null && result.getErrors().isEmpty() ? "success" : "error")
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public InstrumentationContext<Document> beginParse(InstrumentationExecutionParameters parameters) {
+        return phase("parse");
+    }
+
+    @Override
+    public InstrumentationContext<List<ValidationError>> beginValidation(InstrumentationValidationParameters parameters) {
+        return phase("validate");
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+        OperationState state = parameters.getInstrumentationState();
+        String name = parameters.getExecutionContext().getOperationDefinition().getName();
+        state.operation = name != null ? name : "anonymous";
+        return phase("execute");
+    }
+
+    @Override
+    public InstrumentationContext<Object> beginFieldFetch(InstrumentationFieldFetchParameters parameters) {
+        if (parameters.isTrivialDataFetcher()) {
+            return super.beginFieldFetch(parameters);
+        }
+        if (fieldSampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= fieldSampleRate) {
+            return super.beginFieldFetch(parameters);
+        }
+        ExecutionStepInfo stepInfo = parameters.getExecutionStepInfo();
+        String coordinates = stepInfo.getFieldContainer().getName() + "." + stepInfo.getFieldDefinition().getName();
+        FieldMeters meters = fieldMeters.computeIfAbsent(coordinates, FieldMeters::new);
+        long start = System.nanoTime();
+        return SimpleInstrumentationContext.whenCompleted((value, t) -> {
+            long duration = System.nanoTime() - start;
+            if (t == null) {
+                meters.success.record(duration, TimeUnit.NANOSECONDS);
+            } else {
+                meters.failure.record(duration, TimeUnit.NANOSECONDS);
+                meters.errors.increment();
+            }
+        });
+    }
+
+    private <T> InstrumentationContext<T> phase(String phase) {
+        long start = System.nanoTime();
+        return SimpleInstrumentationContext.whenCompleted((value, t) -> Timer.builder("graphql.request.phase")
+                .tag("phase", phase)
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    private static class OperationState implements InstrumentationState {
+        volatile String operation;
+    }
+
+    private class FieldMeters {
+        final Timer success;
+        final Timer failure;
+        final Counter errors;
+
+        FieldMeters(String coordinates) {
+            success = fieldTimer(coordinates, "success");
+            failure = fieldTimer(coordinates, "error");
+            errors = Counter.builder("graphql.field.errors").tag("field", coordinates).register(registry);
+        }
+
+        private Timer fieldTimer(String coordinates, String outcome) {
+            return Timer.builder("graphql.field")
+                    .tag("field", coordinates)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
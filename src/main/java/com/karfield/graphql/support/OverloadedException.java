@@ -0,0 +1,17 @@
+package com.karfield.graphql.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * An operation rejected by the {@link GraphQLRequestLimiter}, answered with 503 Service Unavailable
+ * and an error with {@code extensions.code} OVERLOADED.
+ */
+public class OverloadedException extends ResponseStatusException {
+
+    private static final long serialVersionUID = 1L;
+
+    public OverloadedException(String reason) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, reason);
+    }
+}
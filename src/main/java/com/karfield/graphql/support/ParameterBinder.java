@@ -0,0 +1,43 @@
+package com.karfield.graphql.support;
+
+import graphql.Internal;
+import graphql.schema.DataFetchingEnvironment;
+
+import java.util.List;
+
+/**
+ * The parameter binding plan of a resolver method, compiled once from the parameters found by
+ * {@link GraphQLAutoConfiguration} so a fetch is a single pass filling a fixed size argument array.
+ * Each {@link ResolverParameter} only computes what its own parameter needs.
+ */
+@Internal
+public final class ParameterBinder {
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final ResolverParameter[] parameters;
+
+    public ParameterBinder(List<ResolverParameter> parameters) {
+        this.parameters = parameters.toArray(new ResolverParameter[0]);
+    }
+
+    public int size() {
+        return parameters.length;
+    }
+
+    public ResolverParameter[] getParameters() {
+        return parameters.clone();
+    }
+
+    public Object[] bind(DataFetchingEnvironment environment) {
+        int n = parameters.length;
+        if (n == 0) {
+            return NO_ARGUMENTS;
+        }
+        Object[] arguments = new Object[n];
+        for (int i = 0; i < n; i++) {
+            arguments[i] = parameters[i].resolve(environment);
+        }
+        return arguments;
+    }
+}
@@ -0,0 +1,143 @@
+package com.karfield.graphql.support;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import graphql.ExecutionInput;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.language.Document;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * A bounded, LRU evicted {@link PreparsedDocumentProvider} which keeps the parsed and validated document of a query,
+ * so repeated operations skip both the parser and the validator.
+ * <p>
+ * Entries are keyed by the query text, the operation name (instrumentations may analyse the selected operation while
+ * validating) and the version of the schema they were validated against.
+ * If maxWeight is positive the cache is bounded by the total length of the cached query texts,
+ * otherwise by the number of entries.
+ */
+public class PreparsedDocumentCache implements PreparsedDocumentProvider {
+
+    private final Cache<Key, PreparsedDocumentEntry> cache;
+
+    private volatile long schemaVersion;
+
+    public PreparsedDocumentCache(long maxSize, long maxWeight) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if (maxWeight > 0) {
+            builder.maximumWeight(maxWeight).weigher((Key k, PreparsedDocumentEntry v) -> k.query.length());
+        } else {
+            builder.maximumSize(maxSize);
+        }
+        this.cache = builder.build();
+    }
+
+    @Override
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput, Function<ExecutionInput, PreparsedDocumentEntry> computeFunction) {
+        return getDocument(executionInput, computeFunction, schemaVersion);
+    }
+
+    /**
+     * A view of this cache for the {@link graphql.GraphQL} instance of one version of the schema, so a request
+     * still running on a replaced instance can never cache a document under the version of the new one.
+     */
+    public PreparsedDocumentProvider forSchemaVersion(long schemaVersion) {
+        return (executionInput, computeFunction) -> getDocument(executionInput, computeFunction, schemaVersion);
+    }
+
+    private PreparsedDocumentEntry getDocument(ExecutionInput executionInput, Function<ExecutionInput, PreparsedDocumentEntry> computeFunction, long schemaVersion) {
+        Key key = new Key(executionInput.getQuery(), executionInput.getOperationName(), schemaVersion);
+        try {
+            return cache.get(key, () -> {
+                try {
+                    return computeFunction.apply(executionInput);
+                } catch (AbortExecutionException e) {
+                    // rejected by an instrumentation while validating
+                    return new PreparsedDocumentEntry(e);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException("Error preparing GraphQL document: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * @return the document of a query already parsed and validated against that version of the schema, null if it
+     * is not cached or did not validate. Not counted as a hit or a miss.
+     */
+    public Document getDocumentIfPresent(String query, String operationName, long schemaVersion) {
+        PreparsedDocumentEntry entry = cache.asMap().get(new Key(query, operationName, schemaVersion));
+        return entry != null && !entry.hasErrors() ? entry.getDocument() : null;
+    }
+
+    public long getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * Documents validated against an older schema are never hit again once the version changes,
+     * they are simply aged out by the LRU policy.
+     */
+    public void setSchemaVersion(long schemaVersion) {
+        this.schemaVersion = schemaVersion;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    private static final class Key {
+        private final String query;
+        private final String operationName;
+        private final long schemaVersion;
+
+        Key(String query, String operationName, long schemaVersion) {
+            this.query = query;
+            this.operationName = operationName;
+            this.schemaVersion = schemaVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return schemaVersion == key.schemaVersion && query.equals(key.query)
+                    && Objects.equals(operationName, key.operationName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, operationName, schemaVersion);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.karfield.graphql.support;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import graphql.ErrorType;
+import graphql.ExecutionResult;
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.language.*;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLTypeUtil;
+import graphql.util.TraversalControl;
+import graphql.util.TraverserContext;
+import graphql.validation.ValidationError;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Rejects operations which are nested too deep or cost too much, once they are validated and before any data fetcher runs.
+ * <p>
+ * A field costs its {@code cost} (1 unless declared on {@link com.karfield.graphql.annotations.GraphQLQuery}
+ * or {@link com.karfield.graphql.annotations.GraphQLMutation}) plus the cost of its selections,
+ * the latter multiplied by the value of its {@code costMultiplier} argument if there is one.
+ * <p>
+ * The analysis runs as part of validation, so with a {@link PreparsedDocumentCache} it only runs once per document
+ * and operation, and rejections are cached as well: they are reported as validation errors. Documents whose depth or cost depends on their variables
+ * are only checked before each execution, so the variables of one request never reject the document for others.
+ */
+public class QueryComplexityInstrumentation extends SimpleInstrumentation {
+
+    private final int maxDepth;
+    private final int maxComplexity;
+    private final Map<String, FieldCost> fieldCosts;
+    private final Set<String> multipliers;
+    private final Cache<Document, Boolean> variableDependentDocuments = CacheBuilder.newBuilder().weakKeys().build();
+
+    /**
+     * @param maxDepth      the maximum depth, unlimited if not positive
+     * @param maxComplexity the maximum complexity, unlimited if not positive
+     * @param fieldCosts    declared field costs by "Type.field"
+     */
+    public QueryComplexityInstrumentation(int maxDepth, int maxComplexity, Map<String, FieldCost> fieldCosts) {
+        this.maxDepth = maxDepth;
+        this.maxComplexity = maxComplexity;
+        this.fieldCosts = fieldCosts;
+        this.multipliers = fieldCosts.values().stream()
+                .map(FieldCost::getMultiplier)
+                .filter(m -> !m.equals(""))
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public InstrumentationContext<List<ValidationError>> beginValidation(InstrumentationValidationParameters parameters) {
+        return new SimpleInstrumentationContext<List<ValidationError>>() {
+            @Override
+            public void onCompleted(List<ValidationError> errors, Throwable t) {
+                if (t != null || (errors != null && !errors.isEmpty())) {
+                    return;
+                }
+                Document document = parameters.getDocument();
+                if (dependsOnVariables(document)) {
+                    // checked before each execution instead, a rejection would be cached for any variables
+                    variableDependentDocuments.put(document, Boolean.TRUE);
+                    return;
+                }
+                String rejection = check(parameters.getSchema(), document, parameters.getOperation(), parameters.getVariables());
+                if (rejection != null) {
+                    // errors is the list graphql-java returns from validation: the operation fails as invalid,
+                    // and the instrumentations after this one still complete their contexts
+                    errors.add(new RejectionError(rejection));
+                }
+            }
+        };
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+        ExecutionContext context = parameters.getExecutionContext();
+        if (variableDependentDocuments.getIfPresent(context.getDocument()) != null) {
+            // not checked while validating, the validated document may be cached for other variables;
+            // thrown before the chain begins the operation, this instrumentation comes first
+            String rejection = check(context.getGraphQLSchema(), context.getDocument(), context.getOperationDefinition().getName(), context.getVariables());
+            if (rejection != null) {
+                throw new AbortExecutionException(rejection);
+            }
+        }
+        return super.beginExecuteOperation(parameters);
+    }
+
+    /**
+     * @return why the operation is rejected, null if it is not
+     */
+    private String check(GraphQLSchema schema, Document document, String operationName, Map<String, Object> variables) {
+        QueryTraverser traverser = QueryTraverser.newQueryTraverser()
+                .schema(schema)
+                .document(document)
+                .operationName(operationName)
+                .variables(variables)
+                .build();
+        if (maxDepth > 0) {
+            int depth = traverser.reducePreOrder((env, acc) -> Math.max(depth(env), acc), 0);
+            if (depth > maxDepth) {
+                return "maximum query depth exceeded " + depth + " > " + maxDepth;
+            }
+        }
+        if (maxComplexity > 0) {
+            int complexity = complexity(traverser);
+            if (complexity > maxComplexity) {
+                return "maximum query complexity exceeded " + complexity + " > " + maxComplexity;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the depth or cost of a document changes with its variables, through @skip/@include conditions
+     * or cost multiplier arguments given as variables.
+     */
+    @SuppressWarnings("rawtypes") // TraverserContext<Node> in the signatures of NodeVisitorStub
+    private boolean dependsOnVariables(Document document) {
+        boolean[] dependent = new boolean[1];
+        new NodeTraverser().depthFirst(new NodeVisitorStub() {
+            @Override
+            public TraversalControl visitDirective(Directive node, TraverserContext<Node> context) {
+                if (node.getName().equals("skip") || node.getName().equals("include")) {
+                    for (Argument argument : node.getArguments()) {
+                        dependent[0] |= argument.getValue() instanceof VariableReference;
+                    }
+                }
+                return super.visitDirective(node, context);
+            }
+
+            @Override
+            public TraversalControl visitArgument(Argument node, TraverserContext<Node> context) {
+                if (multipliers.contains(node.getName())) {
+                    dependent[0] |= node.getValue() instanceof VariableReference;
+                }
+                return super.visitArgument(node, context);
+            }
+        }, document);
+        return dependent[0];
+    }
+
+    private static int depth(QueryVisitorFieldEnvironment env) {
+        int depth = 0;
+        while (env != null) {
+            depth++;
+            env = env.getParentEnvironment();
+        }
+        return depth;
+    }
+
+    private int complexity(QueryTraverser traverser) {
+        Map<QueryVisitorFieldEnvironment, Integer> valuesByParent = Maps.newLinkedHashMap();
+        traverser.visitPostOrder(new QueryVisitorStub() {
+            @Override
+            public void visitField(QueryVisitorFieldEnvironment env) {
+                int childComplexity = valuesByParent.getOrDefault(env, 0);
+                int value = fieldComplexity(env, childComplexity);
+                valuesByParent.merge(env.getParentEnvironment(), value, Integer::sum);
+            }
+        });
+        return valuesByParent.getOrDefault(null, 0);
+    }
+
+    private int fieldComplexity(QueryVisitorFieldEnvironment env, int childComplexity) {
+        if (env.isTypeNameIntrospectionField()) {
+            return 0;
+        }
+        String coordinates = GraphQLTypeUtil.unwrapAll(env.getParentType()).getName() + "." + env.getField().getName();
+        FieldCost cost = fieldCosts.get(coordinates);
+        if (cost == null) {
+            return 1 + childComplexity;
+        }
+        int multiplier = 1;
+        if (!cost.getMultiplier().equals("")) {
+            Object value = env.getArguments().get(cost.getMultiplier());
+            if (value instanceof Number) {
+                multiplier = Math.max(1, ((Number) value).intValue());
+            }
+        }
+        return cost.getCost() + childComplexity * multiplier;
+    }
+
+    public static class FieldCost {
+        private final int cost;
+        private final String multiplier;
+
+        public FieldCost(int cost, String multiplier) {
+            this.cost = cost;
+            this.multiplier = multiplier;
+        }
+
+        public int getCost() {
+            return cost;
+        }
+
+        public String getMultiplier() {
+            return multiplier;
+        }
+    }
+
+    /**
+     * A rejection reported as a validation error, with the message and classification of an aborted execution.
+     */
+    private static class RejectionError extends ValidationError {
+
+        private final String message;
+
+        RejectionError(String message) {
+            super(null, Collections.emptyList(), message);
+            this.message = message;
+        }
+
+        @Override
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public ErrorType getErrorType() {
+            return ErrorType.ExecutionAborted;
+        }
+    }
+}
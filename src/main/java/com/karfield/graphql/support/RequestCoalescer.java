@@ -0,0 +1,198 @@
+package com.karfield.graphql.support;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.Directives;
+import graphql.language.Definition;
+import graphql.language.Directive;
+import graphql.language.Document;
+import graphql.language.Node;
+import graphql.language.OperationDefinition;
+import graphql.parser.Parser;
+import org.springframework.core.env.Environment;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical queries in flight, with graphql.coalescing.enabled=true: while a query runs, the same query
+ * with the same variables and context shares its result instead of being executed again, e.g. during a cache
+ * stampede. Mutations, subscriptions and operations with @defer are always executed.
+ * <p>
+ * The key is taken from the {@link ExecutionInput} once the {@link com.karfield.graphql.servlet.ExecutionInputCustomizer}
+ * ran, so it holds whatever the customizer derived from the request (a user, a tenant...), and the timeout the
+ * client asked for.
+ * <ul>
+ * <li>graphql.coalescing.headers: the x-headers of the context which are part of the key, e.g. "x-user-id,x-tenant",
+ * the other context entries always are. Unset, the whole context is, so only operations with the same x-headers are
+ * coalesced</li>
+ * <li>graphql.coalescing.document-cache-weight (1000000): total length of the queries for which whether they can be
+ * coalesced is kept. It is read from the document of the {@link PreparsedDocumentCache} if it has one, a query is
+ * only parsed again when it is not cached there</li>
+ * </ul>
+ * Resolvers which depend on the caller through anything else than the execution input, e.g. a thread local security
+ * context, must not be coalesced.
+ */
+public class RequestCoalescer {
+
+    private final List<String> headers;
+    private final PreparsedDocumentCache documentCache;
+    private final Cache<String, Map<String, Boolean>> coalescable;
+    private final Map<List<Object>, CompletableFuture<ExecutionResult>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param documentCache the documents already parsed, null if they are not cached
+     */
+    public RequestCoalescer(Environment environment, PreparsedDocumentCache documentCache) {
+        String[] headers = environment.getProperty("graphql.coalescing.headers", String[].class);
+        this.headers = headers == null ? null : ImmutableList.copyOf(Lists.transform(Arrays.asList(headers), h -> h.trim().toLowerCase()));
+        this.documentCache = documentCache;
+        this.coalescable = CacheBuilder.newBuilder()
+                .maximumWeight(environment.getProperty("graphql.coalescing.document-cache-weight", Long.class, 1000000L))
+                .weigher((String query, Map<String, Boolean> operations) -> query.length())
+                .build();
+    }
+
+    /**
+     * Runs the invocation, or returns the result of the identical query in flight.
+     *
+     * @param schemaVersion the version of the schema the operation runs on
+     * @param input         the customized input of the operation
+     * @param requestKey    what else of the request changes the result, e.g. the timeout of the client
+     */
+    public CompletableFuture<ExecutionResult> execute(long schemaVersion, ExecutionInput input, Object requestKey,
+                                                      Supplier<CompletableFuture<ExecutionResult>> invocation) {
+        List<Object> key = getKey(schemaVersion, input, requestKey);
+        if (key == null) {
+            return invocation.get();
+        }
+        CompletableFuture<ExecutionResult> leader = new CompletableFuture<>();
+        CompletableFuture<ExecutionResult> current = inFlight.putIfAbsent(key, leader);
+        if (current != null) {
+            hits.increment();
+            // a copy for each caller, which can not cancel the shared execution
+            return current.thenApply(Function.identity());
+        }
+        misses.increment();
+        try {
+            invocation.get().whenComplete((result, t) -> {
+                inFlight.remove(key, leader);
+                if (t != null) {
+                    leader.completeExceptionally(t);
+                } else {
+                    leader.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(e);
+        }
+        return leader.thenApply(Function.identity());
+    }
+
+    /**
+     * @return null if the operation is not coalesced
+     */
+    private List<Object> getKey(long schemaVersion, ExecutionInput input, Object requestKey) {
+        String query = input.getQuery();
+        if (!isCoalescable(schemaVersion, query, input.getOperationName())) {
+            return null;
+        }
+        Object context = input.getContext();
+        Object contextKey = context;
+        if (headers != null) {
+            if (!(context instanceof Map)) {
+                return null;
+            }
+            Map<Object, Object> values = Maps.newHashMap();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) context).entrySet()) {
+                // entries added by a customizer are kept, x-headers only if they are listed
+                if (!(entry.getKey() instanceof String) || !((String) entry.getKey()).startsWith("x-")
+                        || headers.contains(entry.getKey())) {
+                    values.put(entry.getKey(), entry.getValue());
+                }
+            }
+            contextKey = values;
+        }
+        return Arrays.asList(schemaVersion, query, input.getOperationName(), input.getVariables(), contextKey,
+                input.getRoot(), requestKey);
+    }
+
+    private boolean isCoalescable(long schemaVersion, String query, String operationName) {
+        Map<String, Boolean> operations;
+        try {
+            operations = coalescable.get(query, () -> getOperations(schemaVersion, query, operationName));
+        } catch (ExecutionException e) {
+            return false;
+        }
+        if (operationName == null || operationName.isEmpty()) {
+            return operations.size() == 1 && operations.values().iterator().next();
+        }
+        return operations.getOrDefault(operationName, false);
+    }
+
+    /**
+     * Whether each operation by name, "" for an anonymous one, is a query without @defer, empty if the query does
+     * not parse: graphql-java reports the error.
+     */
+    private Map<String, Boolean> getOperations(long schemaVersion, String query, String operationName) {
+        Document document = documentCache != null ? documentCache.getDocumentIfPresent(query, operationName, schemaVersion) : null;
+        if (document == null) {
+            try {
+                document = new Parser().parseDocument(query);
+            } catch (RuntimeException e) {
+                return ImmutableMap.of();
+            }
+        }
+        // a fragment may be deferred in any operation which spreads it
+        boolean deferred = hasDefer(document);
+        Map<String, Boolean> operations = Maps.newHashMap();
+        for (Definition<?> definition : document.getDefinitions()) {
+            if (definition instanceof OperationDefinition) {
+                OperationDefinition operation = (OperationDefinition) definition;
+                operations.put(operation.getName() != null ? operation.getName() : "",
+                        operation.getOperation() == OperationDefinition.Operation.QUERY && !deferred);
+            }
+        }
+        return ImmutableMap.copyOf(operations);
+    }
+
+    private static boolean hasDefer(Node<?> node) {
+        if (node instanceof Directive && ((Directive) node).getName().equals(Directives.DeferDirective.getName())) {
+            return true;
+        }
+        for (Node<?> child : node.getChildren()) {
+            if (hasDefer(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,144 @@
+package com.karfield.graphql.support;
+
+import graphql.Internal;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Binds a public method of a {@link com.karfield.graphql.annotations.GraphQLResolver} bean as a {@link DataFetcher},
+ * its arguments are filled by a precompiled {@link ParameterBinder} and the call goes through a {@link MethodInvoker}.
+ * <p>
+ * With an executor the method runs on it, otherwise on the execution thread. Either way a {@link CompletionStage}
+ * is awaited by graphql-java, and a {@link Publisher} is adapted to a future of its first value, cancelling the
+ * future cancels the subscription.
+ */
+@Internal
+public class ResolverDataFetcher implements DataFetcher<Object> {
+
+    private final MethodInvoker invoker;
+    private final ParameterBinder binder;
+    private final Executor executor;
+
+    public ResolverDataFetcher(Object resolver, Method method, List<ResolverParameter> parameters) throws IllegalAccessException {
+        this(resolver, method, parameters, null);
+    }
+
+    public ResolverDataFetcher(Object resolver, Method method, List<ResolverParameter> parameters, Executor executor) throws IllegalAccessException {
+        this(() -> resolver, method, parameters, executor);
+    }
+
+    /**
+     * @param resolver supplies the bean, which may not be created yet
+     */
+    public ResolverDataFetcher(Supplier<?> resolver, Method method, List<ResolverParameter> parameters, Executor executor) throws IllegalAccessException {
+        this.invoker = new MethodInvoker(resolver, method);
+        this.binder = new ParameterBinder(parameters);
+        this.executor = executor;
+    }
+
+    @Override
+    public Object get(DataFetchingEnvironment environment) throws Exception {
+        // arguments are bound on the execution thread, the environment is not meant to be shared
+        return invoke(binder.bind(environment));
+    }
+
+    /**
+     * Calls the method with arguments bound by {@link #getBinder()}.
+     */
+    public Object invoke(Object[] args) throws Exception {
+        if (executor == null) {
+            return adapt(invoker.invoke(args));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return invoker.invoke(args);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor).thenCompose(result -> toFuture(adapt(result)));
+    }
+
+    public Method getMethod() {
+        return invoker.getMethod();
+    }
+
+    public ParameterBinder getBinder() {
+        return binder;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    private static Object adapt(Object result) {
+        if (result instanceof Publisher) {
+            return first((Publisher<?>) result);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletionStage<Object> toFuture(Object result) {
+        if (result instanceof CompletionStage) {
+            return (CompletionStage<Object>) result;
+        }
+        return CompletableFuture.completedFuture(result);
+    }
+
+    /**
+     * The first value of a publisher (e.g. a Mono), null if it completes empty.
+     */
+    private static CompletableFuture<Object> first(Publisher<?> publisher) {
+        CompletableFuture<Object> future = new PublisherFuture();
+        publisher.subscribe(new Subscriber<Object>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                // e.g. timed out, the publisher stops working on it
+                future.whenComplete((value, t) -> {
+                    if (future.isCancelled()) {
+                        s.cancel();
+                    }
+                });
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(Object value) {
+                if (future.complete(value)) {
+                    subscription.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * The first value of a publisher subscribed for a single fetch, which may be cancelled when the field times out.
+     */
+    static final class PublisherFuture extends CompletableFuture<Object> {
+    }
+}
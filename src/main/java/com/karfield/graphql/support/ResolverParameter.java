@@ -1,9 +1,16 @@
 package com.karfield.graphql.support;
 
+import graphql.schema.DataFetchingEnvironment;
+
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Parameter;
 
 public interface ResolverParameter {
      Parameter getParameter();
      Annotation getAnnotation();
+
+     /**
+      * Extracts the value passed to the resolver method for this parameter.
+      */
+     Object resolve(DataFetchingEnvironment environment);
 }
@@ -0,0 +1,132 @@
+package com.karfield.graphql.support;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import graphql.Internal;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the {@link GraphQLSchemaRegistry} when one of the schema files changes, for graphql.schema.watch.
+ * <p>
+ * Only the files found in a directory can be watched (e.g. target/classes in development), not those in a jar.
+ * Changes are debounced: an editor usually writes a file several times in a row.
+ */
+@Slf4j
+@Internal
+final class SchemaFileWatcher implements Runnable {
+
+    private static final long DEBOUNCE_MILLIS = 300;
+
+    private final GraphQLSchemaRegistry registry;
+    private final WatchService watchService;
+    private final Map<Path, Set<Path>> filesByDirectory;
+    private final Thread thread;
+
+    private SchemaFileWatcher(GraphQLSchemaRegistry registry, WatchService watchService, Map<Path, Set<Path>> filesByDirectory) {
+        this.registry = registry;
+        this.watchService = watchService;
+        this.filesByDirectory = filesByDirectory;
+        this.thread = new Thread(this, "graphql-schema-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * @param resources the classpath resources of the schema
+     * @return the started watcher, or null if none of the resources is a file
+     */
+    static SchemaFileWatcher start(GraphQLSchemaRegistry registry, List<String> resources) throws IOException {
+        Map<Path, Set<Path>> filesByDirectory = Maps.newHashMap();
+        ClassLoader classLoader = SchemaFileWatcher.class.getClassLoader();
+        for (String resource : resources) {
+            URL url = classLoader.getResource(resource);
+            if (url == null) {
+                continue;
+            }
+            if (!url.getProtocol().equals("file")) {
+                log.warn("graphql schema file {} cannot be watched, it is not a file: {}", resource, url);
+                continue;
+            }
+            try {
+                Path file = Paths.get(url.toURI());
+                filesByDirectory.computeIfAbsent(file.getParent(), d -> Sets.newHashSet()).add(file.getFileName());
+            } catch (URISyntaxException e) {
+                log.warn("graphql schema file {} cannot be watched: {}", resource, e.getMessage());
+            }
+        }
+        if (filesByDirectory.isEmpty()) {
+            return null;
+        }
+
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        for (Path directory : filesByDirectory.keySet()) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        SchemaFileWatcher watcher = new SchemaFileWatcher(registry, watchService, filesByDirectory);
+        watcher.thread.start();
+        log.info("watching graphql schema files in {}", filesByDirectory.keySet());
+        return watcher;
+    }
+
+    void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("failed to close the graphql schema watcher", e);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                boolean changed = poll(watchService.take());
+                // collect the other events of the same save
+                WatchKey key;
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= poll(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private boolean poll(WatchKey key) {
+        Set<Path> files = filesByDirectory.get((Path) key.watchable());
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path && files != null && files.contains(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            registry.reload();
+        } catch (Exception e) {
+            log.error("failed to reload the graphql schema, keeping version {}", registry.getVersion(), e);
+        }
+    }
+}
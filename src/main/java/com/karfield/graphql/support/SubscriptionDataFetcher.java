@@ -0,0 +1,40 @@
+package com.karfield.graphql.support;
+
+import graphql.Internal;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import org.reactivestreams.Publisher;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/**
+ * Binds a {@link com.karfield.graphql.annotations.GraphQLSubscription} method of a
+ * {@link com.karfield.graphql.annotations.GraphQLResolver} bean, its {@link Publisher} is handed to graphql-java as is.
+ */
+@Internal
+public class SubscriptionDataFetcher implements DataFetcher<Object> {
+
+    private final MethodInvoker invoker;
+    private final ParameterBinder binder;
+
+    public SubscriptionDataFetcher(Supplier<?> resolver, Method method, List<ResolverParameter> parameters) throws IllegalAccessException {
+        Class<?> returnType = method.getReturnType();
+        if (!Publisher.class.isAssignableFrom(returnType) && !CompletionStage.class.isAssignableFrom(returnType)) {
+            throw new IllegalArgumentException("@GraphQLSubscription method " + method + " should return a Publisher");
+        }
+        this.invoker = new MethodInvoker(resolver, method);
+        this.binder = new ParameterBinder(parameters);
+    }
+
+    @Override
+    public Object get(DataFetchingEnvironment environment) throws Exception {
+        return invoker.invoke(binder.bind(environment));
+    }
+
+    public Method getMethod() {
+        return invoker.getMethod();
+    }
+}
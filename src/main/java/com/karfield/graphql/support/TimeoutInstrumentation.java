@@ -0,0 +1,114 @@
+package com.karfield.graphql.support;
+
+import com.google.common.collect.ImmutableMap;
+import graphql.ErrorType;
+import graphql.ExecutionResult;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.DataFetcherResult;
+import graphql.execution.ExecutionId;
+import graphql.execution.ExecutionPath;
+import graphql.execution.ExecutionStepInfo;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the fields still pending at their {@link GraphQLDeadline} to null with a TIMEOUT error. The futures they
+ * returned are only cancelled if they belong to this fetch, i.e. a publisher adapted by {@link ResolverDataFetcher}:
+ * others may be shared with other requests (a single flight, a data loader). The deadline of a field is the one of its operation, or its
+ * {@link com.karfield.graphql.annotations.GraphQLTimeout} from the moment it is fetched, whichever comes first.
+ * <p>
+ * A field resolved synchronously keeps its value, its fetcher can not be interrupted.
+ */
+public class TimeoutInstrumentation extends SimpleInstrumentation {
+
+    private final GraphQLTimeouts timeouts;
+    private final Map<String, Long> fieldTimeouts;
+
+    /**
+     * @param fieldTimeouts the timeouts in nanoseconds by field coordinates ("Type.field")
+     */
+    public TimeoutInstrumentation(GraphQLTimeouts timeouts, Map<String, Long> fieldTimeouts) {
+        this.timeouts = timeouts;
+        this.fieldTimeouts = fieldTimeouts;
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecution(InstrumentationExecutionParameters parameters) {
+        ExecutionId executionId = parameters.getExecutionInput().getExecutionId();
+        return SimpleInstrumentationContext.whenCompleted((result, t) -> GraphQLDeadline.unregister(executionId));
+    }
+
+    @Override
+    public DataFetcher<?> instrumentDataFetcher(DataFetcher<?> dataFetcher, InstrumentationFieldFetchParameters parameters) {
+        if (parameters.isTrivialDataFetcher()) {
+            return dataFetcher;
+        }
+        ExecutionStepInfo stepInfo = parameters.getExecutionStepInfo();
+        Long fieldTimeout = fieldTimeouts.isEmpty() ? null
+                : fieldTimeouts.get(stepInfo.getFieldContainer().getName() + "." + stepInfo.getFieldDefinition().getName());
+        GraphQLDeadline requestDeadline = GraphQLDeadline.get(parameters.getExecutionContext().getExecutionId());
+        if (fieldTimeout == null && !requestDeadline.isBounded()) {
+            return dataFetcher;
+        }
+        return environment -> fetch(dataFetcher, environment, fieldTimeout == null ? requestDeadline
+                : requestDeadline.min(GraphQLDeadline.after(fieldTimeout, TimeUnit.NANOSECONDS)), fieldTimeout != null);
+    }
+
+    private Object fetch(DataFetcher<?> dataFetcher, DataFetchingEnvironment environment, GraphQLDeadline deadline,
+                         boolean fieldDeadline) throws Exception {
+        if (deadline.isExpired()) {
+            return timedOut(environment);
+        }
+        ExecutionId executionId = environment.getExecutionId();
+        ExecutionPath path = environment.getExecutionStepInfo().getPath();
+        if (fieldDeadline) {
+            GraphQLDeadline.enter(executionId, path, deadline);
+        }
+        Object result;
+        try {
+            result = dataFetcher.get(environment);
+        } catch (Exception e) {
+            if (fieldDeadline) {
+                GraphQLDeadline.exit(executionId, path);
+            }
+            throw e;
+        }
+        if (!(result instanceof CompletionStage)) {
+            if (fieldDeadline) {
+                GraphQLDeadline.exit(executionId, path);
+            }
+            return result;
+        }
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Object> future = (CompletableFuture<Object>) ((CompletionStage<?>) result).toCompletableFuture();
+        CompletableFuture<Object> bounded = timeouts.within(future, deadline, () -> timedOut(environment), f -> {
+            if (f instanceof ResolverDataFetcher.PublisherFuture) {
+                f.cancel(true);
+            }
+        });
+        if (fieldDeadline) {
+            bounded.whenComplete((value, t) -> GraphQLDeadline.exit(executionId, path));
+        }
+        return bounded;
+    }
+
+    private static DataFetcherResult<Object> timedOut(DataFetchingEnvironment environment) {
+        return DataFetcherResult.newResult()
+                .error(GraphqlErrorBuilder.newError(environment)
+                        .message("%s timed out", environment.getExecutionStepInfo().getPath())
+                        .errorType(ErrorType.ExecutionAborted)
+                        .extensions(ImmutableMap.of("code", GraphQLTimeouts.TIMEOUT))
+                        .build())
+                .build();
+    }
+}
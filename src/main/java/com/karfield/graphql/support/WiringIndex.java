@@ -0,0 +1,126 @@
+package com.karfield.graphql.support;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.karfield.graphql.annotations.GraphQLInterface;
+import com.karfield.graphql.annotations.GraphQLMutation;
+import com.karfield.graphql.annotations.GraphQLQuery;
+import com.karfield.graphql.annotations.GraphQLResolver;
+import com.karfield.graphql.annotations.GraphQLScalar;
+import com.karfield.graphql.annotations.GraphQLSubscription;
+import com.karfield.graphql.annotations.GraphQLUnion;
+import com.karfield.graphql.processor.GraphQLIndexProcessor;
+import graphql.Internal;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The index written by {@link GraphQLIndexProcessor}, merged from every jar of the classpath.
+ * Bean classes are matched by name, so classes deleted since the last build are never matched.
+ */
+@Internal
+final class WiringIndex {
+
+    static final Map<String, Class<? extends Annotation>> TYPE_ANNOTATIONS = ImmutableMap.<String, Class<? extends Annotation>>builder()
+            .put(GraphQLIndexProcessor.SCALAR, GraphQLScalar.class)
+            .put(GraphQLIndexProcessor.QUERY, GraphQLQuery.class)
+            .put(GraphQLIndexProcessor.MUTATION, GraphQLMutation.class)
+            .put(GraphQLIndexProcessor.SUBSCRIPTION, GraphQLSubscription.class)
+            .put(GraphQLIndexProcessor.INTERFACE, GraphQLInterface.class)
+            .put(GraphQLIndexProcessor.UNION, GraphQLUnion.class)
+            .put(GraphQLIndexProcessor.RESOLVER, GraphQLResolver.class)
+            .build();
+
+    private final ClassLoader classLoader;
+    private final Map<String, List<String>> kindsByClass = Maps.newHashMap();
+    private final Map<String, Map<String, List<String>>> methodsByClass = Maps.newHashMap();
+
+    private WiringIndex(ClassLoader classLoader, Properties properties) {
+        this.classLoader = classLoader;
+        for (String key : properties.stringPropertyNames()) {
+            List<String> values = Splitter.on(',').omitEmptyStrings().splitToList(properties.getProperty(key));
+            int hash = key.indexOf('#');
+            if (hash < 0) {
+                kindsByClass.put(key, values);
+            } else {
+                methodsByClass.computeIfAbsent(key.substring(0, hash), c -> Maps.newLinkedHashMap()).put(key.substring(hash + 1), values);
+            }
+        }
+    }
+
+    /**
+     * @return the index, or null if there is none on the classpath
+     */
+    static WiringIndex load(ClassLoader classLoader) throws IOException {
+        Enumeration<URL> urls = classLoader.getResources(GraphQLIndexProcessor.INDEX_LOCATION);
+        if (!urls.hasMoreElements()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        for (URL url : Collections.list(urls)) {
+            try (InputStream in = url.openStream()) {
+                properties.load(in);
+            }
+        }
+        return new WiringIndex(classLoader, properties);
+    }
+
+    /**
+     * @return whether the bean class is indexed, a class compiled without the processor is not even if it is annotated
+     */
+    boolean contains(Class<?> beanClass) {
+        return kindsByClass.containsKey(beanClass.getName());
+    }
+
+    /**
+     * @return the wiring annotations of a bean class, empty if it is not indexed
+     */
+    List<Class<? extends Annotation>> getAnnotations(Class<?> beanClass) {
+        List<String> kinds = kindsByClass.get(beanClass.getName());
+        if (kinds == null) {
+            return Collections.emptyList();
+        }
+        List<Class<? extends Annotation>> annotations = Lists.newArrayList();
+        for (String kind : kinds) {
+            if (TYPE_ANNOTATIONS.containsKey(kind)) {
+                annotations.add(TYPE_ANNOTATIONS.get(kind));
+            }
+        }
+        return annotations;
+    }
+
+    /**
+     * @return the field methods of a resolver class with the kinds of their parameters
+     */
+    Map<Method, List<String>> getFieldMethods(Class<?> resolverClass) throws ClassNotFoundException, NoSuchMethodException {
+        Map<String, List<String>> methods = methodsByClass.getOrDefault(resolverClass.getName(), Collections.emptyMap());
+        Map<Method, List<String>> results = Maps.newLinkedHashMap();
+        for (Map.Entry<String, List<String>> entry : methods.entrySet()) {
+            String signature = entry.getKey();
+            int open = signature.indexOf('(');
+            List<String> typeNames = Splitter.on(',').omitEmptyStrings().splitToList(signature.substring(open + 1, signature.length() - 1));
+            Class<?>[] types = new Class<?>[typeNames.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = ClassUtils.forName(typeNames.get(i), classLoader);
+            }
+            results.put(resolverClass.getDeclaredMethod(signature.substring(0, open), types), entry.getValue());
+        }
+        return results;
+    }
+
+    int size() {
+        return kindsByClass.size();
+    }
+}
@@ -1,8 +1,21 @@
 package com.karfield.graphql.support.parameters;
 
+import com.karfield.graphql.support.ArgumentConverter;
+import graphql.schema.DataFetchingEnvironment;
 import lombok.Data;
 
 @Data
 public class ArgumentParameter extends Base {
     private String name;
-}
+
+    /**
+     * Converts the argument to the type of the parameter, null to pass it as is.
+     */
+    private ArgumentConverter converter;
+
+    @Override
+    public Object resolve(DataFetchingEnvironment environment) {
+        Object value = environment.getArgument(name);
+        return converter != null ? converter.convert(value) : value;
+    }
+}
\ No newline at end of file
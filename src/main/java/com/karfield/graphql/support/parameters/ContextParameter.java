@@ -1,7 +1,10 @@
 package com.karfield.graphql.support.parameters;
 
+import graphql.schema.DataFetchingEnvironment;
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class ContextParameter extends Base {
     private String name;
@@ -9,4 +12,19 @@ public class ContextParameter extends Base {
     public boolean hasContextKey() {
         return !name.equals("");
     }
+
+    @Override
+    public Object resolve(DataFetchingEnvironment environment) {
+        return resolveContext(environment.getContext());
+    }
+
+    public Object resolveContext(Object context) {
+        if (!hasContextKey()) {
+            return context;
+        }
+        if (context instanceof Map) {
+            return ((Map) context).get(name);
+        }
+        return null;
+    }
 }
@@ -0,0 +1,12 @@
+package com.karfield.graphql.support.parameters;
+
+import com.karfield.graphql.support.GraphQLDeadline;
+import graphql.schema.DataFetchingEnvironment;
+
+public class DeadlineParameter extends Base {
+
+    @Override
+    public Object resolve(DataFetchingEnvironment environment) {
+        return GraphQLDeadline.of(environment);
+    }
+}
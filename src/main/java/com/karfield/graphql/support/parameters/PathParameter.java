@@ -1,8 +1,17 @@
 package com.karfield.graphql.support.parameters;
 
+import graphql.schema.DataFetchingEnvironment;
 import lombok.Data;
 
 @Data
 public class PathParameter extends Base {
     private boolean asLevel;
+
+    @Override
+    public Object resolve(DataFetchingEnvironment environment) {
+        if (asLevel) {
+            return environment.getExecutionStepInfo().getPath().getLevel();
+        }
+        return environment.getExecutionStepInfo().getPath().toString();
+    }
 }
@@ -1,7 +1,10 @@
 package com.karfield.graphql.support.parameters;
 
 import com.google.common.collect.Lists;
+import graphql.schema.DataFetchingEnvironment;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,16 +14,25 @@ public class RequireAllOfFieldsParameter extends Base {
     private String glob;
     private String[] globs;
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final SelectionCache<Boolean> cache = new SelectionCache<>();
+
     public RequireAllOfFieldsParameter(String[] gs) {
         if (gs.length == 0)
             throw new IllegalArgumentException("none fields");
         glob = gs[0];
         ArrayList<String> l = Lists.newArrayList(gs);
         if (l.size() > 1) {
-            List<String> sl = l.subList(1, l.size() - 1);
+            List<String> sl = l.subList(1, l.size());
             globs = sl.toArray(new String[0]);
         } else {
             globs = new String[0];
         }
     }
+
+    @Override
+    public Object resolve(DataFetchingEnvironment environment) {
+        return cache.get(environment, env -> env.getSelectionSet().containsAllOf(glob, globs));
+    }
 }
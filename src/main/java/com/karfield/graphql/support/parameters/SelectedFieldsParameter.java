@@ -0,0 +1,57 @@
+package com.karfield.graphql.support.parameters;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLTypeUtil;
+import graphql.schema.SelectedField;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.Map;
+import java.util.Set;
+
+@Data
+public class SelectedFieldsParameter extends Base {
+    /**
+     * Column names by qualified field name, every leaf field is selected by its name if empty.
+     */
+    private Map<String, String> columns;
+
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final SelectionCache<Set<String>> cache = new SelectionCache<>();
+
+    public SelectedFieldsParameter(String[] mappings) {
+        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
+        for (String mapping : mappings) {
+            int eq = mapping.indexOf('=');
+            if (eq <= 0 || eq == mapping.length() - 1) {
+                throw new IllegalArgumentException("illegal column mapping '" + mapping + "', should be field=column");
+            }
+            builder.put(mapping.substring(0, eq).trim(), mapping.substring(eq + 1).trim());
+        }
+        columns = builder.build();
+    }
+
+    @Override
+    public Object resolve(DataFetchingEnvironment environment) {
+        return cache.get(environment, this::select);
+    }
+
+    private Set<String> select(DataFetchingEnvironment environment) {
+        ImmutableSet.Builder<String> selected = ImmutableSet.builder();
+        for (SelectedField field : environment.getSelectionSet().getFields()) {
+            if (!GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(field.getFieldDefinition().getType()))) {
+                continue;
+            }
+            if (columns.isEmpty()) {
+                selected.add(field.getQualifiedName());
+            } else if (columns.containsKey(field.getQualifiedName())) {
+                selected.add(columns.get(field.getQualifiedName()));
+            }
+        }
+        return selected.build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.karfield.graphql.support.parameters;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.Node;
+import graphql.language.VariableReference;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Values computed from the selection set of a field, once per field of a parsed query rather than once per call:
+ * a resolver of a list's items is called with the same field for every item, and a query served from the
+ * preparsed document cache keeps its fields across requests.
+ * <p>
+ * Fields are weakly held by identity. A field of a fragment spread at several sites is merged with other fields and
+ * resolved on other parent types from one site to the next, so the value is kept per merged field and parent type.
+ * It is kept for the values of the variables the selection set refers to, since @include and @skip may change it.
+ */
+final class SelectionCache<T> {
+
+    private final Cache<Field, Map<Site, Entry<T>>> cache = CacheBuilder.newBuilder().weakKeys().build();
+
+    T get(DataFetchingEnvironment environment, Function<DataFetchingEnvironment, T> compute) {
+        List<Field> fields = environment.getMergedField().getFields();
+        Map<Site, Entry<T>> sites;
+        try {
+            sites = cache.get(fields.get(0), ConcurrentHashMap::new);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        // the first field is the key of the cache, holding it in the value would keep it from being collected
+        Site site = new Site(fields.subList(1, fields.size()), environment.getParentType());
+        Entry<T> entry = sites.get(site);
+        Set<String> names = entry != null ? entry.names : getVariableNames(environment);
+        Map<String, Object> variables = names.isEmpty()
+                ? Collections.emptyMap() : new HashMap<>(Maps.filterKeys(environment.getVariables(), names::contains));
+        if (entry == null || !entry.variables.equals(variables)) {
+            entry = new Entry<>(names, variables, compute.apply(environment));
+            sites.put(site, entry);
+        }
+        return entry.value;
+    }
+
+    private static Set<String> getVariableNames(DataFetchingEnvironment environment) {
+        Set<String> names = new HashSet<>();
+        Set<String> fragments = new HashSet<>();
+        for (Field field : environment.getMergedField().getFields()) {
+            collectVariableNames(field.getSelectionSet(), environment.getFragmentsByName(), fragments, names);
+        }
+        return ImmutableSet.copyOf(names);
+    }
+
+    private static void collectVariableNames(Node<?> node, Map<String, FragmentDefinition> fragmentsByName,
+                                             Set<String> fragments, Set<String> names) {
+        if (node == null) {
+            return;
+        }
+        if (node instanceof VariableReference) {
+            names.add(((VariableReference) node).getName());
+        } else if (node instanceof FragmentSpread && fragments.add(((FragmentSpread) node).getName())) {
+            collectVariableNames(fragmentsByName.get(((FragmentSpread) node).getName()), fragmentsByName, fragments, names);
+        }
+        for (Node<?> child : node.getChildren()) {
+            collectVariableNames(child, fragmentsByName, fragments, names);
+        }
+    }
+
+    /**
+     * The other fields merged with the first one and the parent type, by identity.
+     */
+    private static final class Site {
+        private final List<Field> fields;
+        private final GraphQLType parentType;
+
+        private Site(List<Field> fields, GraphQLType parentType) {
+            this.fields = fields;
+            this.parentType = parentType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Site)) {
+                return false;
+            }
+            Site other = (Site) o;
+            if (parentType != other.parentType || fields.size() != other.fields.size()) {
+                return false;
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                if (fields.get(i) != other.fields.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(parentType);
+            for (Field field : fields) {
+                hash = 31 * hash + System.identityHashCode(field);
+            }
+            return hash;
+        }
+    }
+
+    private static final class Entry<T> {
+        private final Set<String> names;
+        private final Map<String, Object> variables;
+        private final T value;
+
+        private Entry(Set<String> names, Map<String, Object> variables, T value) {
+            this.names = names;
+            this.variables = variables;
+            this.value = value;
+        }
+    }
+}
@@ -1,4 +1,11 @@
 package com.karfield.graphql.support.parameters;
 
+import graphql.schema.DataFetchingEnvironment;
+
 public class SourceParameter extends Base {
+
+    @Override
+    public Object resolve(DataFetchingEnvironment environment) {
+        return environment.getSource();
+    }
 }
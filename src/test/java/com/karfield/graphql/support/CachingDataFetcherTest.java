@@ -0,0 +1,137 @@
+package com.karfield.graphql.support;
+
+import com.google.common.collect.ImmutableMap;
+import com.karfield.graphql.annotations.GraphQLCacheable;
+import com.karfield.graphql.servlet.FieldCacheKey;
+import com.karfield.graphql.servlet.FieldResultCache;
+import com.karfield.graphql.support.parameters.ArgumentParameter;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingEnvironmentImpl;
+import graphql.schema.GraphQLObjectType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static graphql.Scalars.GraphQLString;
+import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CachingDataFetcherTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Map<FieldCacheKey, Object> values = new ConcurrentHashMap<>();
+    private final FieldResultCache cache = new FieldResultCache() {
+        @Override
+        public Object get(FieldCacheKey key) {
+            return values.get(key);
+        }
+
+        @Override
+        public void put(FieldCacheKey key, Object value, long ttlMillis) {
+            values.put(key, value);
+        }
+    };
+    private CompletableFuture<String> pending;
+    private CachingDataFetcher fetcher;
+
+    @GraphQLCacheable
+    public CompletableFuture<String> user(String id) {
+        calls.incrementAndGet();
+        return pending;
+    }
+
+    @GraphQLCacheable
+    public String friends() {
+        return "friends" + calls.incrementAndGet();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Method method = getClass().getMethod("user", String.class);
+        ArgumentParameter id = new ArgumentParameter();
+        id.setName("id");
+        ResolverDataFetcher delegate = new ResolverDataFetcher(this, method, Collections.singletonList(id));
+        fetcher = new CachingDataFetcher("Query.user", delegate, cache, method.getAnnotation(GraphQLCacheable.class));
+        pending = new CompletableFuture<>();
+    }
+
+    private static DataFetchingEnvironment environment(String id) {
+        return DataFetchingEnvironmentImpl.newDataFetchingEnvironment()
+                .arguments(ImmutableMap.of("id", id))
+                .build();
+    }
+
+    @Test
+    public void sharesOneCallBetweenOverlappingMisses() throws Exception {
+        CompletableFuture<?> first = (CompletableFuture<?>) fetcher.get(environment("1"));
+        CompletableFuture<?> second = (CompletableFuture<?>) fetcher.get(environment("1"));
+        assertEquals(1, calls.get());
+        assertEquals(1, fetcher.getMisses());
+        assertEquals(1, fetcher.getHits());
+
+        pending.complete("alice");
+        assertEquals("alice", first.join());
+        assertEquals("alice", second.join());
+
+        // then served from the cache
+        assertEquals("alice", fetcher.get(environment("1")));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void callsAgainForAnotherKey() throws Exception {
+        fetcher.get(environment("1"));
+        fetcher.get(environment("2"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void aCancelledCallerDoesNotCancelTheSharedCall() throws Exception {
+        CompletableFuture<?> first = (CompletableFuture<?>) fetcher.get(environment("1"));
+        CompletableFuture<?> second = (CompletableFuture<?>) fetcher.get(environment("1"));
+        first.cancel(true);
+
+        assertFalse(pending.isCancelled());
+        pending.complete("alice");
+        assertEquals("alice", second.join());
+        assertEquals("alice", values.values().iterator().next());
+    }
+
+    @Test
+    public void doesNotCacheFailures() throws Exception {
+        CompletableFuture<?> first = (CompletableFuture<?>) fetcher.get(environment("1"));
+        pending.completeExceptionally(new IllegalStateException("down"));
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(values.isEmpty());
+
+        pending = CompletableFuture.completedFuture("alice");
+        assertEquals("alice", ((CompletableFuture<?>) fetcher.get(environment("1"))).join());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void keysTheFieldsOfOtherTypesOnTheirParent() throws Exception {
+        Method method = getClass().getMethod("friends");
+        CachingDataFetcher friends = new CachingDataFetcher("User.friends",
+                new ResolverDataFetcher(this, method, Collections.emptyList()), cache, method.getAnnotation(GraphQLCacheable.class));
+        GraphQLObjectType user = GraphQLObjectType.newObject().name("User")
+                .field(newFieldDefinition().name("friends").type(GraphQLString))
+                .build();
+
+        Object ofAlice = friends.get(DataFetchingEnvironmentImpl.newDataFetchingEnvironment().source("alice").parentType(user).build());
+        Object ofBob = friends.get(DataFetchingEnvironmentImpl.newDataFetchingEnvironment().source("bob").parentType(user).build());
+        assertNotEquals(ofAlice, ofBob);
+        assertEquals(ofAlice, friends.get(DataFetchingEnvironmentImpl.newDataFetchingEnvironment().source("alice").parentType(user).build()));
+        assertEquals(2, calls.get());
+    }
+}
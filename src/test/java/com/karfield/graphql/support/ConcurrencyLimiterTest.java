@@ -0,0 +1,100 @@
+package com.karfield.graphql.support;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrencyLimiterTest {
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private ConcurrencyLimiter limiter(int limit, int queueSize, long maxWaitMillis) {
+        return new ConcurrencyLimiter(limit, 1, limit, queueSize, maxWaitMillis, TimeUnit.MILLISECONDS, timer, Runnable::run);
+    }
+
+    @Test
+    public void admitsUpToTheLimit() throws Exception {
+        ConcurrencyLimiter limiter = limiter(2, 0, 0);
+        CompletableFuture<ConcurrencyLimiter.Permit> first = limiter.acquire();
+        CompletableFuture<ConcurrencyLimiter.Permit> second = limiter.acquire();
+        assertTrue(first.isDone() && second.isDone());
+        assertEquals(2, limiter.getInFlight());
+
+        assertOverloaded(limiter.acquire());
+        assertEquals(1, limiter.getRejected());
+
+        first.get().release(false);
+        assertEquals(1, limiter.getInFlight());
+        assertTrue(limiter.acquire().isDone());
+    }
+
+    @Test
+    public void queuesUntilAPermitIsReleased() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 1, 10000);
+        ConcurrencyLimiter.Permit permit = limiter.acquire().get();
+        CompletableFuture<ConcurrencyLimiter.Permit> waiting = limiter.acquire();
+        assertFalse(waiting.isDone());
+        assertEquals(1, limiter.getQueued());
+
+        // the queue is full
+        assertOverloaded(limiter.acquire());
+
+        permit.release(false);
+        assertTrue(waiting.isDone());
+        assertEquals(0, limiter.getQueued());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void releasesAPermitOnce() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 0, 0);
+        ConcurrencyLimiter.Permit permit = limiter.acquire().get();
+        permit.release(false);
+        permit.release(false);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void rejectsWaitersAfterTheMaxWait() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 10, 50);
+        ConcurrencyLimiter.Permit permit = limiter.acquire().get();
+        CompletableFuture<ConcurrencyLimiter.Permit> waiting = limiter.acquire();
+
+        try {
+            waiting.get(5, TimeUnit.SECONDS);
+            fail("the waiter should have expired");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof OverloadedException);
+        }
+        assertEquals(0, limiter.getQueued());
+        assertEquals(1, limiter.getRejected());
+
+        // the permit of the expired waiter is not granted to it
+        permit.release(false);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private static void assertOverloaded(CompletableFuture<ConcurrencyLimiter.Permit> future) {
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.join();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof OverloadedException);
+        }
+    }
+}
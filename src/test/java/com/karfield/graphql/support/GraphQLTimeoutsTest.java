@@ -0,0 +1,127 @@
+package com.karfield.graphql.support;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.execution.ExecutionId;
+import graphql.execution.ExecutionPath;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GraphQLTimeoutsTest {
+
+    private final GraphQLTimeouts timeouts = new GraphQLTimeouts(0, "x-timeout", 0, Runnable::run);
+
+    @After
+    public void shutdown() {
+        timeouts.shutdown();
+    }
+
+    private static CompletableFuture<ExecutionInput> input() {
+        return CompletableFuture.completedFuture(ExecutionInput.newExecutionInput("{ hello }").build());
+    }
+
+    @Test
+    public void registersTheDeadlineWhileTheOperationRuns() {
+        GraphQLDeadline deadline = GraphQLDeadline.after(10, TimeUnit.SECONDS);
+        AtomicReference<ExecutionId> executionId = new AtomicReference<>();
+        CompletableFuture<ExecutionResult> pending = new CompletableFuture<>();
+        CompletableFuture<ExecutionResult> result = timeouts.execute(deadline, input(), executionInput -> {
+            executionId.set(executionInput.getExecutionId());
+            return pending;
+        });
+
+        assertNotNull(executionId.get());
+        assertSame(deadline, GraphQLDeadline.get(executionId.get()));
+
+        pending.complete(new ExecutionResultImpl("world", null));
+        assertEquals("world", result.join().getData());
+        assertSame(GraphQLDeadline.NONE, GraphQLDeadline.get(executionId.get()));
+    }
+
+    @Test
+    public void unregistersTheDeadlineOfAFailedOperation() {
+        AtomicReference<ExecutionId> executionId = new AtomicReference<>();
+        try {
+            timeouts.execute(GraphQLDeadline.after(10, TimeUnit.SECONDS), input(), executionInput -> {
+                executionId.set(executionInput.getExecutionId());
+                throw new IllegalStateException("failed");
+            }).join();
+            fail("the operation should have failed");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertSame(GraphQLDeadline.NONE, GraphQLDeadline.get(executionId.get()));
+    }
+
+    @Test
+    public void leavesOperationsWithoutDeadlineAlone() {
+        AtomicReference<ExecutionId> executionId = new AtomicReference<>();
+        timeouts.execute(GraphQLDeadline.NONE, input(), executionInput -> {
+            executionId.set(executionInput.getExecutionId());
+            return CompletableFuture.completedFuture(new ExecutionResultImpl("world", null));
+        }).join();
+        assertNull(executionId.get());
+    }
+
+    @Test
+    public void removesTheDeadlineOfAFieldOnExit() {
+        ExecutionId executionId = ExecutionId.generate();
+        ExecutionPath path = ExecutionPath.rootPath().segment("hello");
+        GraphQLDeadline deadline = GraphQLDeadline.after(1, TimeUnit.SECONDS);
+        GraphQLDeadline.register(executionId, GraphQLDeadline.NONE);
+        GraphQLDeadline.enter(executionId, path, deadline);
+        GraphQLDeadline.exit(executionId, path);
+        GraphQLDeadline.unregister(executionId);
+        assertSame(GraphQLDeadline.NONE, GraphQLDeadline.get(executionId));
+    }
+
+    @Test
+    public void appliesTheTimeoutOfTheClientWithinTheRequestTimeout() {
+        GraphQLTimeouts bounded = new GraphQLTimeouts(1000, "x-timeout", 0, Runnable::run);
+        try {
+            assertTrue(bounded.getRequestDeadline("100").getRemaining(TimeUnit.MILLISECONDS) <= 100);
+            assertTrue(bounded.getRequestDeadline("5000").getRemaining(TimeUnit.MILLISECONDS) > 100);
+            assertTrue(bounded.getRequestDeadline("junk").getRemaining(TimeUnit.MILLISECONDS) > 100);
+        } finally {
+            bounded.shutdown();
+        }
+        assertFalse(timeouts.getRequestDeadline(null).isBounded());
+    }
+
+    @Test
+    public void timesOutWithoutCancellingTheFuture() throws Exception {
+        CompletableFuture<String> shared = new CompletableFuture<>();
+        CompletableFuture<CompletableFuture<String>> timedOut = new CompletableFuture<>();
+        CompletableFuture<String> bounded = timeouts.within(shared, GraphQLDeadline.after(20, TimeUnit.MILLISECONDS),
+                () -> "timeout", timedOut::complete);
+
+        assertEquals("timeout", bounded.join());
+        // told once the timeout value is in
+        assertSame(shared, timedOut.get(5, TimeUnit.SECONDS));
+        assertFalse(shared.isDone());
+    }
+
+    @Test
+    public void completesWithTheFutureBeforeTheDeadline() {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> timedOut = new AtomicReference<>();
+        CompletableFuture<String> bounded = timeouts.within(future, GraphQLDeadline.after(10, TimeUnit.SECONDS),
+                () -> "timeout", timedOut::set);
+        future.complete("value");
+        assertEquals("value", bounded.join());
+        assertNull(timedOut.get());
+    }
+}
@@ -0,0 +1,114 @@
+package com.karfield.graphql.support;
+
+import com.google.common.collect.ImmutableMap;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.parser.Parser;
+import org.junit.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class RequestCoalescerTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CompletableFuture<ExecutionResult> pending = new CompletableFuture<>();
+    private final Supplier<CompletableFuture<ExecutionResult>> invocation = () -> {
+        executions.incrementAndGet();
+        return pending;
+    };
+
+    private static StandardEnvironment environment(Map<String, Object> properties) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        return environment;
+    }
+
+    private static ExecutionInput input(String query, Map<String, Object> context) {
+        return ExecutionInput.newExecutionInput(query).context(context).build();
+    }
+
+    @Test
+    public void sharesTheExecutionOfIdenticalQueries() {
+        RequestCoalescer coalescer = new RequestCoalescer(environment(Collections.emptyMap()), null);
+        CompletableFuture<ExecutionResult> first = coalescer.execute(0, input("{ hello }", ImmutableMap.of()), null, invocation);
+        CompletableFuture<ExecutionResult> second = coalescer.execute(0, input("{ hello }", ImmutableMap.of()), null, invocation);
+        assertEquals(1, executions.get());
+        assertEquals(1, coalescer.getHits());
+        assertEquals(1, coalescer.getInFlight());
+
+        ExecutionResult result = new ExecutionResultImpl("world", null);
+        pending.complete(result);
+        assertSame(result, first.join());
+        assertSame(result, second.join());
+        assertEquals(0, coalescer.getInFlight());
+
+        // nothing in flight anymore
+        coalescer.execute(0, input("{ hello }", ImmutableMap.of()), null, invocation);
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void aCancelledCallerDoesNotCancelTheSharedExecution() {
+        RequestCoalescer coalescer = new RequestCoalescer(environment(Collections.emptyMap()), null);
+        CompletableFuture<ExecutionResult> first = coalescer.execute(0, input("{ hello }", ImmutableMap.of()), null, invocation);
+        CompletableFuture<ExecutionResult> second = coalescer.execute(0, input("{ hello }", ImmutableMap.of()), null, invocation);
+        first.cancel(true);
+
+        assertFalse(pending.isCancelled());
+        ExecutionResult result = new ExecutionResultImpl("world", null);
+        pending.complete(result);
+        assertSame(result, second.join());
+    }
+
+    @Test
+    public void executesMutationsAndDeferredQueries() {
+        RequestCoalescer coalescer = new RequestCoalescer(environment(Collections.emptyMap()), null);
+        for (String query : new String[]{"mutation { hello }", "{ hello @defer }", "query A { ...F } fragment F on Query { hello @defer }"}) {
+            coalescer.execute(0, input(query, ImmutableMap.of()), null, invocation);
+            coalescer.execute(0, input(query, ImmutableMap.of()), null, invocation);
+        }
+        assertEquals(6, executions.get());
+        assertEquals(0, coalescer.getHits());
+    }
+
+    @Test
+    public void keysOnTheListedHeadersAndTheRequest() {
+        RequestCoalescer coalescer = new RequestCoalescer(environment(ImmutableMap.of("graphql.coalescing.headers", "X-User-Id")), null);
+        coalescer.execute(0, input("{ hello }", ImmutableMap.of("x-user-id", "1", "x-request-id", "a")), null, invocation);
+        // other x-headers are not part of the key
+        coalescer.execute(0, input("{ hello }", ImmutableMap.of("x-user-id", "1", "x-request-id", "b")), null, invocation);
+        assertEquals(1, executions.get());
+
+        coalescer.execute(0, input("{ hello }", ImmutableMap.of("x-user-id", "2")), null, invocation);
+        // entries added by a customizer are
+        coalescer.execute(0, input("{ hello }", ImmutableMap.of("x-user-id", "1", "user", "alice")), null, invocation);
+        // so is the timeout of the client, and the version of the schema
+        coalescer.execute(0, input("{ hello }", ImmutableMap.of("x-user-id", "1")), "100", invocation);
+        coalescer.execute(1, input("{ hello }", ImmutableMap.of("x-user-id", "1")), null, invocation);
+        assertEquals(5, executions.get());
+    }
+
+    @Test
+    public void readsCachedDocumentsInsteadOfParsing() {
+        PreparsedDocumentCache documentCache = new PreparsedDocumentCache(10, 0);
+        // not a query graphql-java could parse, only its cached document tells it is one
+        documentCache.getDocument(input("cached", ImmutableMap.of()),
+                executionInput -> new PreparsedDocumentEntry(new Parser().parseDocument("{ hello }")));
+        RequestCoalescer coalescer = new RequestCoalescer(environment(Collections.emptyMap()), documentCache);
+        coalescer.execute(0, input("cached", ImmutableMap.of()), null, invocation);
+        coalescer.execute(0, input("cached", ImmutableMap.of()), null, invocation);
+        assertEquals(1, executions.get());
+    }
+}